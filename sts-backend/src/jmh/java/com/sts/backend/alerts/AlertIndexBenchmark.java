@@ -0,0 +1,77 @@
+package com.sts.backend.alerts;
+
+import com.sts.backend.domain.PriceAlert.Kind;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tick throughput of the alert index with 1M armed alerts spread over 100
+ * symbols, thresholds within ±20% of the starting price. Each invocation
+ * moves every symbol once by a random-walk step; alerts that fire are
+ * re-armed so the population stays at its size.
+ *
+ *   ./gradlew jmh -Pjmh.includes=AlertIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AlertIndexBenchmark {
+
+  @Param({"1000000"})
+  int alerts;
+
+  @Param({"100"})
+  int symbols;
+
+  AlertIndex index;
+  String[] names;
+  double[] px;
+  SplittableRandom rnd;
+  long nextId;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    rnd = new SplittableRandom(11);
+    index = new AlertIndex();
+    names = new String[symbols];
+    px = new double[symbols];
+    for (int s = 0; s < symbols; s++) {
+      names[s] = "S" + s;
+      px[s] = 100.0;
+    }
+    for (int i = 0; i < alerts; i++) arm(rnd.nextInt(symbols));
+    for (int s = 0; s < symbols; s++) index.prime(names[s], px[s]);
+  }
+
+  private void arm(int s) {
+    boolean pct = rnd.nextInt(4) == 0;
+    double offset = (rnd.nextDouble() - 0.5) * 0.4;
+    if (pct) {
+      index.add(nextId++, names[s], offset > 0 ? Kind.CHANGE_ABOVE : Kind.CHANGE_BELOW, offset * 100.0);
+    } else {
+      index.add(nextId++, names[s], offset > 0 ? Kind.ABOVE : Kind.BELOW, 100.0 * (1 + offset));
+    }
+  }
+
+  /** One tick of every symbol. */
+  @Benchmark
+  @OperationsPerInvocation(100)
+  public void tick(Blackhole bh) {
+    for (int s = 0; s < symbols; s++) {
+      double next = px[s] * (1 + (rnd.nextDouble() - 0.5) * 0.004);
+      next = Math.min(119.0, Math.max(81.0, next));
+      px[s] = next;
+      final int sym = s;
+      index.onPrice(names[s], next, 100.0, id -> {
+        bh.consume(id);
+        arm(sym);
+      });
+    }
+  }
+}
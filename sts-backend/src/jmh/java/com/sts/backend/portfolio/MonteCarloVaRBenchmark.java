@@ -0,0 +1,67 @@
+package com.sts.backend.portfolio;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the VaR simulation with path count and pool size, on a
+ * 20-asset portfolio with a random positive-definite covariance.
+ *
+ *   ./gradlew jmh -Pjmh.includes=MonteCarloVaRBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonteCarloVaRBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  int paths;
+
+  @Param({"1", "2", "4", "8"})
+  int threads;
+
+  @Param({"20"})
+  int assets;
+
+  double[] exposure;
+  double[] chol;
+  ForkJoinPool pool;
+
+  @Setup
+  public void setup() {
+    SplittableRandom rnd = new SplittableRandom(7);
+    exposure = new double[assets];
+    double[][] factors = new double[assets][assets];
+    for (int i = 0; i < assets; i++) {
+      exposure[i] = 1_000 + rnd.nextDouble() * 9_000;
+      for (int k = 0; k < assets; k++) factors[i][k] = rnd.nextGaussian() * 0.005;
+    }
+    double[][] cov = new double[assets][assets];
+    for (int i = 0; i < assets; i++) {
+      for (int j = 0; j < assets; j++) {
+        double s = 0;
+        for (int k = 0; k < assets; k++) s += factors[i][k] * factors[j][k];
+        cov[i][j] = s;
+      }
+    }
+    chol = MonteCarloVaR.cholesky(cov);
+    pool = new ForkJoinPool(threads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public double var99() {
+    double[] pnl = MonteCarloVaR.simulate(exposure, chol, paths, 42, pool);
+    return MonteCarloVaR.valueAtRisk(pnl, 0.99);
+  }
+}
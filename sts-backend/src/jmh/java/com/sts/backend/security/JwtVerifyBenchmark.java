@@ -0,0 +1,57 @@
+package com.sts.backend.security;
+
+import com.sts.backend.domain.Role;
+import com.sts.backend.domain.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verify cost per request for one 15-minute access token, the way a polling
+ * dashboard replays it: "cold" runs with the verified-token cache disabled
+ * (signature check and JSON parse on every call, the old behaviour minus
+ * the per-call parser build), "warm" hits the cache (SHA-256 of the token
+ * and a map lookup).
+ *
+ *   ./gradlew jmh -Pjmh.includes=JwtVerifyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+  static final String SECRET = "eb62ZM3x3psExKTIXEsmR+xk3GTU5VW4QNGejSW8CI0=";
+
+  JwtService cold;
+  JwtService warm;
+  String token;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    cold = new JwtService(SECRET, 900_000, 604_800_000, 60, 0, 0.5);
+    warm = new JwtService(SECRET, 900_000, 604_800_000, 60, 10_000, 0.5);
+    User user = User.builder()
+        .id(UUID.randomUUID())
+        .username("trader1")
+        .email("trader1@example.com")
+        .password("x")
+        .role(Role.USER)
+        .build();
+    token = warm.generateAccessToken(user);
+    warm.verify(token);
+  }
+
+  @Benchmark
+  public Object cold() {
+    return cold.verify(token);
+  }
+
+  @Benchmark
+  public Object warm() {
+    return warm.verify(token);
+  }
+}
@@ -0,0 +1,64 @@
+package com.sts.backend.security;
+
+import com.sts.backend.domain.Role;
+import com.sts.backend.domain.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuance cost of one login/refresh (access + refresh token) for the User
+ * entity, which mints through TokenSubject, and for a plain principal
+ * class, which goes through the per-class cached getters.
+ *
+ *   ./gradlew jmh -Pjmh.includes=TokenMintBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenMintBenchmark {
+
+  /** A principal that is neither a TokenSubject nor a UserDetails. */
+  public static class Account {
+    public String getEmail() { return "trader2@example.com"; }
+    public UUID getId() { return ID; }
+    public List<String> getRoles() { return List.of("USER"); }
+  }
+
+  static final UUID ID = UUID.randomUUID();
+
+  JwtService jwt;
+  User user;
+  Account account;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    jwt = new JwtService(JwtVerifyBenchmark.SECRET, 900_000, 604_800_000, 60, 10_000, 0.5);
+    user = User.builder()
+        .id(ID)
+        .username("trader1")
+        .email("trader1@example.com")
+        .password("x")
+        .role(Role.USER)
+        .build();
+    account = new Account();
+  }
+
+  @Benchmark
+  public void user(Blackhole bh) {
+    bh.consume(jwt.generateAccessToken(user));
+    bh.consume(jwt.generateRefreshToken(user));
+  }
+
+  @Benchmark
+  public void pojo(Blackhole bh) {
+    bh.consume(jwt.generateAccessToken(account));
+    bh.consume(jwt.generateRefreshToken(account));
+  }
+}
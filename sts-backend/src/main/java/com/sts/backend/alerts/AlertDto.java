@@ -0,0 +1,14 @@
+package com.sts.backend.alerts;
+
+import com.sts.backend.domain.PriceAlert;
+
+import java.time.Instant;
+
+public record AlertDto(Long id, String symbol, String kind, double threshold, String status,
+                       Instant createdAt, Instant firedAt, Double firedPrice) {
+
+  static AlertDto of(PriceAlert a) {
+    return new AlertDto(a.getId(), a.getSymbol(), a.getKind().name(), a.getThreshold(),
+        a.getStatus().name(), a.getCreatedAt(), a.getFiredAt(), a.getFiredPrice());
+  }
+}
@@ -0,0 +1,166 @@
+package com.sts.backend.alerts;
+
+import com.sts.backend.domain.PriceAlert.Kind;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * AlertIndex — armed alert ids per symbol in four sorted threshold maps:
+ * price above / below and changePct above / below.
+ *
+ * Alerts fire on a crossing. A move from {@code prev} to {@code cur} only
+ * visits the sub-map between the two, e.g. (prev, cur] of the "above" map
+ * on an up-tick, which is then cleared in one range operation. A tick costs
+ * O(log n + fired) however many alerts rest on the symbol; the changePct
+ * window is taken against the current reference so a session rollover is
+ * not treated as a crossing.
+ *
+ * Thresholds are keyed as long ticks (×10 000). Fired ids are handed to the
+ * consumer outside of the symbol's lock.
+ */
+public final class AlertIndex {
+
+  private static final double TICKS = 10_000.0;
+
+  private final Map<String, SymbolAlerts> bySymbol = new ConcurrentHashMap<>();
+  private final Map<Long, Loc> byId = new ConcurrentHashMap<>();
+
+  public void add(long id, String symbol, Kind kind, double threshold) {
+    long key = ticks(threshold);
+    byId.put(id, new Loc(symbol, kind, key));   // before arming, so a racing tick can claim it
+    SymbolAlerts sa = bySymbol.computeIfAbsent(symbol, k -> new SymbolAlerts());
+    synchronized (sa) {
+      sa.ladder(kind).add(key, id);
+    }
+  }
+
+  /** Set the price crossings are measured from, if the symbol has none yet. */
+  public void prime(String symbol, double price) {
+    SymbolAlerts sa = bySymbol.get(symbol);
+    if (sa == null || Double.isNaN(price)) return;
+    synchronized (sa) {
+      if (Double.isNaN(sa.lastPx)) sa.lastPx = price;
+    }
+  }
+
+  /** @return true if the alert was still armed */
+  public boolean remove(long id) {
+    Loc loc = byId.remove(id);
+    if (loc == null) return false;
+    SymbolAlerts sa = bySymbol.get(loc.symbol);
+    synchronized (sa) {
+      sa.ladder(loc.kind).remove(loc.key, id);
+    }
+    return true;
+  }
+
+  public int size() {
+    return byId.size();
+  }
+
+  /**
+   * Feed the symbol's new price. {@code ref} is the changePct basis (previous
+   * close), or a non-positive value to skip the changePct maps.
+   */
+  public void onPrice(String symbol, double price, double ref, LongConsumer fired) {
+    SymbolAlerts sa = bySymbol.get(symbol);
+    if (sa == null) return;
+    Ids out = null;
+    synchronized (sa) {
+      double prev = sa.lastPx;
+      sa.lastPx = price;
+      if (Double.isNaN(prev) || prev == price) return;
+      out = sa.cross(sa.abovePx, sa.belowPx, ticks(prev), ticks(price), out);
+      if (ref > 0) {
+        out = sa.cross(sa.abovePct, sa.belowPct,
+            ticks((prev - ref) / ref * 100.0), ticks((price - ref) / ref * 100.0), out);
+      }
+    }
+    if (out == null) return;
+    for (int i = 0; i < out.n; i++) {
+      long id = out.a[i];
+      if (byId.remove(id) != null) fired.accept(id);
+    }
+  }
+
+  private static long ticks(double v) {
+    return Math.round(v * TICKS);
+  }
+
+  private record Loc(String symbol, Kind kind, long key) {}
+
+  private static final class SymbolAlerts {
+    final TreeMap<Long, Ids> abovePx = new TreeMap<>();
+    final TreeMap<Long, Ids> belowPx = new TreeMap<>();
+    final TreeMap<Long, Ids> abovePct = new TreeMap<>();
+    final TreeMap<Long, Ids> belowPct = new TreeMap<>();
+    double lastPx = Double.NaN;
+
+    Ladder ladder(Kind kind) {
+      return new Ladder(switch (kind) {
+        case ABOVE -> abovePx;
+        case BELOW -> belowPx;
+        case CHANGE_ABOVE -> abovePct;
+        case CHANGE_BELOW -> belowPct;
+      });
+    }
+
+    /** Up-move drains (from, to] of above; down-move drains [to, from) of below. */
+    Ids cross(TreeMap<Long, Ids> above, TreeMap<Long, Ids> below, long from, long to, Ids out) {
+      if (to > from) return drain(above.subMap(from, false, to, true), out);
+      if (to < from) return drain(below.subMap(to, true, from, false), out);
+      return out;
+    }
+
+    private static Ids drain(NavigableMap<Long, Ids> range, Ids out) {
+      if (range.isEmpty()) return out;
+      if (out == null) out = new Ids();
+      for (Ids ids : range.values()) out.addAll(ids);
+      range.clear();
+      return out;
+    }
+  }
+
+  private record Ladder(TreeMap<Long, Ids> map) {
+    void add(long key, long id) {
+      map.computeIfAbsent(key, k -> new Ids()).add(id);
+    }
+
+    void remove(long key, long id) {
+      Ids ids = map.get(key);
+      if (ids != null && ids.remove(id) && ids.n == 0) map.remove(key);
+    }
+  }
+
+  /** Growable long list; most thresholds hold one id. */
+  private static final class Ids {
+    long[] a = new long[1];
+    int n;
+
+    void add(long id) {
+      if (n == a.length) a = Arrays.copyOf(a, n * 2);
+      a[n++] = id;
+    }
+
+    void addAll(Ids o) {
+      if (n + o.n > a.length) a = Arrays.copyOf(a, Math.max(a.length * 2, n + o.n));
+      System.arraycopy(o.a, 0, a, n, o.n);
+      n += o.n;
+    }
+
+    boolean remove(long id) {
+      for (int i = 0; i < n; i++) {
+        if (a[i] == id) {
+          a[i] = a[--n];
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package com.sts.backend.alerts;
+
+import com.sts.backend.domain.PriceAlert;
+import com.sts.backend.repository.PriceAlertRepository;
+import com.sts.backend.quotes.QuoteBook;
+import com.sts.backend.quotes.ReferencePrices;
+import com.sts.backend.ws.QuoteWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AlertService — user price alerts, evaluated on every tick through
+ * {@link AlertIndex}.
+ *
+ * Alerts are persisted on creation and armed in memory; ACTIVE rows are
+ * re-armed at startup. A fired alert is pushed to its owner's WebSocket
+ * sessions as an ALERT frame right away, while the FIRED status is written
+ * by a background thread in batches so the tick thread never waits on the
+ * database.
+ */
+@Service
+public class AlertService {
+
+  private final PriceAlertRepository repo;
+  private final QuoteBook quotes;
+  private final ReferencePrices refs;
+  private final QuoteWebSocketHandler ws;
+  private final int maxPerUser;
+
+  private final AlertIndex index = new AlertIndex();
+  private final Map<Long, PriceAlert> armed = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> perUser = new ConcurrentHashMap<>();
+
+  private final Queue<PriceAlert> toPersist = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final ExecutorService persister = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "alerts-persist");
+    t.setDaemon(true);
+    return t;
+  });
+
+  public AlertService(
+      PriceAlertRepository repo,
+      QuoteBook quotes,
+      ReferencePrices refs,
+      QuoteWebSocketHandler ws,
+      @Value("${alerts.max-per-user:200}") int maxPerUser
+  ) {
+    this.repo = repo;
+    this.quotes = quotes;
+    this.refs = refs;
+    this.ws = ws;
+    this.maxPerUser = maxPerUser;
+    for (PriceAlert a : repo.findByStatus(PriceAlert.Status.ACTIVE)) {
+      if (quotes.isKnown(a.getSymbol())) {
+        arm(a);
+      } else {
+        a.setStatus(PriceAlert.Status.CANCELED);   // left over from before the universe check: never quoted
+        persist(a);
+      }
+    }
+    quotes.addListener(this::onTick);
+  }
+
+  public AlertDto create(String username, CreateAlertReq req) {
+    if (req == null || req.symbol() == null || req.symbol().isBlank() || req.kind() == null
+        || req.threshold() == null || !Double.isFinite(req.threshold())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "symbol, kind and threshold are required");
+    }
+    PriceAlert.Kind kind;
+    try {
+      kind = PriceAlert.Kind.valueOf(req.kind().trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "kind must be one of " + Arrays.toString(PriceAlert.Kind.values()));
+    }
+    boolean priceKind = kind == PriceAlert.Kind.ABOVE || kind == PriceAlert.Kind.BELOW;
+    if (priceKind && req.threshold() <= 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "price threshold must be positive");
+    }
+    String symbol = req.symbol().trim().toUpperCase();
+    if (!quotes.isKnown(symbol)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown symbol " + symbol);
+    }
+    AtomicInteger count = perUser.computeIfAbsent(username, k -> new AtomicInteger());
+    if (count.incrementAndGet() > maxPerUser) {
+      count.decrementAndGet();
+      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "at most " + maxPerUser + " active alerts");
+    }
+    PriceAlert a = PriceAlert.builder()
+        .username(username)
+        .symbol(symbol)
+        .kind(kind)
+        .threshold(req.threshold())
+        .createdAt(Instant.now())
+        .build();
+    try {
+      a = repo.save(a);
+    } catch (RuntimeException e) {
+      count.decrementAndGet();
+      throw e;
+    }
+    armIndex(a);
+    return AlertDto.of(a);
+  }
+
+  public List<AlertDto> list(String username) {
+    List<AlertDto> out = new ArrayList<>();
+    for (PriceAlert a : repo.findTop200ByUsernameOrderByIdDesc(username)) {
+      PriceAlert live = armed.get(a.getId());
+      out.add(AlertDto.of(live != null ? live : a));
+    }
+    return out;
+  }
+
+  public void cancel(String username, long id) {
+    PriceAlert a = armed.get(id);
+    if (a == null || !a.getUsername().equals(username)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no active alert " + id);
+    }
+    if (!index.remove(id)) return;   // fired in the meantime
+    disarm(a);
+    a.setStatus(PriceAlert.Status.CANCELED);
+    persist(a);
+  }
+
+  public Map<String, Object> stats() {
+    return Map.of("armed", index.size(), "pendingWrites", toPersist.size());
+  }
+
+  /* ------------------- TICK PATH ------------------- */
+
+  private void onTick(String symbol, double price, long ts) {
+    ReferencePrices.Refs r = refs.get(symbol);
+    index.onPrice(symbol, price, r == null ? 0 : r.prevClose(), id -> fire(id, price, ts));
+  }
+
+  private void fire(long id, double price, long ts) {
+    PriceAlert a = armed.get(id);
+    if (a == null) return;
+    disarm(a);
+    a.setStatus(PriceAlert.Status.FIRED);
+    a.setFiredAt(Instant.ofEpochMilli(ts));
+    a.setFiredPrice(price);
+    ws.sendToUser(a.getUsername(), frame(a, price, ts));
+    persist(a);
+  }
+
+  private static String frame(PriceAlert a, double price, long ts) {
+    return "{\"type\":\"ALERT\",\"id\":" + a.getId() +
+        ",\"symbol\":\"" + a.getSymbol() + "\",\"kind\":\"" + a.getKind() +
+        "\",\"threshold\":" + a.getThreshold() +
+        ",\"price\":" + String.format(Locale.US, "%.2f", price) + ",\"ts\":" + ts + "}";
+  }
+
+  /* ------------------- STATE ------------------- */
+
+  private void arm(PriceAlert a) {
+    perUser.computeIfAbsent(a.getUsername(), k -> new AtomicInteger()).incrementAndGet();
+    armIndex(a);
+  }
+
+  // tracked before it is in the index; the one disarm that takes it out of armed releases the track
+  private void armIndex(PriceAlert a) {
+    armed.put(a.getId(), a);
+    quotes.track(a.getSymbol());
+    index.add(a.getId(), a.getSymbol(), a.getKind(), a.getThreshold());
+    index.prime(a.getSymbol(), quotes.last(a.getSymbol()));
+  }
+
+  private void disarm(PriceAlert a) {
+    if (armed.remove(a.getId()) == null) return;
+    quotes.untrack(a.getSymbol());
+    AtomicInteger c = perUser.get(a.getUsername());
+    if (c != null) c.decrementAndGet();
+  }
+
+  private void persist(PriceAlert a) {
+    toPersist.add(a);
+    if (flushScheduled.compareAndSet(false, true)) persister.execute(this::flush);
+  }
+
+  private void flush() {
+    flushScheduled.set(false);
+    List<PriceAlert> batch = new ArrayList<>();
+    for (PriceAlert a; (a = toPersist.poll()) != null; ) batch.add(a);
+    if (batch.isEmpty()) return;
+    try {
+      repo.saveAll(batch);
+    } catch (RuntimeException e) {
+      System.err.println("[ALERTS] failed to persist " + batch.size() + " alert(s): " + e.getMessage());
+    }
+  }
+}
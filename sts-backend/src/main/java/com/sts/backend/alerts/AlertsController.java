@@ -0,0 +1,46 @@
+package com.sts.backend.alerts;
+
+import com.sts.backend.common.Accounts;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertsController {
+
+  private final AlertService alerts;
+
+  public AlertsController(AlertService alerts) {
+    this.alerts = alerts;
+  }
+
+  // GET /api/alerts  (most recent 200, any status)
+  @GetMapping
+  public List<AlertDto> list(Authentication auth) {
+    return alerts.list(Accounts.of(auth));
+  }
+
+  // POST /api/alerts  {"symbol":"AAPL","kind":"ABOVE","threshold":200}
+  @PostMapping
+  @ResponseStatus(HttpStatus.CREATED)
+  public AlertDto create(@RequestBody CreateAlertReq req, Authentication auth) {
+    return alerts.create(Accounts.of(auth), req);
+  }
+
+  // DELETE /api/alerts/{id}
+  @DeleteMapping("/{id}")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void cancel(@PathVariable long id, Authentication auth) {
+    alerts.cancel(Accounts.of(auth), id);
+  }
+
+  // GET /api/alerts/stats
+  @GetMapping("/stats")
+  public Map<String, Object> stats() {
+    return alerts.stats();
+  }
+}
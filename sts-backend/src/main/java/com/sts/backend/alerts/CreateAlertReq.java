@@ -0,0 +1,4 @@
+package com.sts.backend.alerts;
+
+/** POST /api/alerts body; kind is ABOVE, BELOW, CHANGE_ABOVE or CHANGE_BELOW. */
+public record CreateAlertReq(String symbol, String kind, Double threshold) {}
@@ -1,13 +1,19 @@
 package com.sts.backend.api;
 
+import com.sts.backend.api.dto.EquityPointDTO;
 import com.sts.backend.api.dto.HoldingDTO;
+import com.sts.backend.api.dto.PortfolioRiskDTO;
 import com.sts.backend.api.dto.PortfolioStatsDTO;
+import com.sts.backend.common.Accounts;
+import com.sts.backend.portfolio.PortfolioBook;
+import com.sts.backend.portfolio.PortfolioRisk;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.util.List;
 
 @Profile("dev")
@@ -15,21 +21,48 @@ import java.util.List;
 @RequestMapping("/api/portfolio")
 public class PortfolioControllerDev {
 
+  private final PortfolioBook book;
+  private final PortfolioRisk risk;
+
+  public PortfolioControllerDev(PortfolioBook book, PortfolioRisk risk) {
+    this.book = book;
+    this.risk = risk;
+  }
+
   @GetMapping("/holdings")
   public List<HoldingDTO> holdings(Authentication auth) {
     // ensureAuthed(auth); // Disabled for development
-    return List.of(
-        new HoldingDTO("AAPL", 10, 190.25),
-        new HoldingDTO("GOOG", 2, 128.40),
-        new HoldingDTO("TSLA", 5, 225.10)
-    );
+    return book.holdings(Accounts.of(auth));
   }
 
   @GetMapping("/stats")
   public PortfolioStatsDTO stats(Authentication auth) {
     // ensureAuthed(auth); // Disabled for development
-    double total = 10*190.25 + 2*128.40 + 5*225.10;
-    return new PortfolioStatsDTO(total, +215.30, +1245.80);
+    return book.stats(Accounts.of(auth));
+  }
+
+  /** Equity history for charting; range is 1D, 1W, 1M, 3M, 1Y or ALL. */
+  @GetMapping("/equity")
+  public List<EquityPointDTO> equity(Authentication auth,
+                                     @RequestParam(defaultValue = "1M") String range,
+                                     @RequestParam(defaultValue = "500") int points) {
+    long now = System.currentTimeMillis();
+    long from = switch (range.toUpperCase()) {
+      case "1D" -> now - Duration.ofDays(1).toMillis();
+      case "1W" -> now - Duration.ofDays(7).toMillis();
+      case "1M" -> now - Duration.ofDays(30).toMillis();
+      case "3M" -> now - Duration.ofDays(91).toMillis();
+      case "1Y" -> now - Duration.ofDays(365).toMillis();
+      case "ALL" -> 0L;
+      default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown range: " + range);
+    };
+    return book.equity(Accounts.of(auth), from, now, Math.min(Math.max(points, 3), 2000));
+  }
+
+  /** Monte Carlo 1-day VaR / expected shortfall of the open positions. */
+  @GetMapping("/risk")
+  public PortfolioRiskDTO risk(Authentication auth, @RequestParam(required = false) Integer paths) {
+    return risk.risk(Accounts.of(auth), paths);
   }
 
   private void ensureAuthed(Authentication auth) {
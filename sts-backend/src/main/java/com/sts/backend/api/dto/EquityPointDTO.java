@@ -0,0 +1,2 @@
+package com.sts.backend.api.dto;
+public record EquityPointDTO(long ts, double value) {}
@@ -0,0 +1,4 @@
+package com.sts.backend.api.dto;
+public record PortfolioRiskDTO(long version, double totalValue, int paths, long horizonMs,
+                               double var95, double es95, double var99, double es99,
+                               long computedAt, long elapsedMs) {}
@@ -3,13 +3,17 @@ package com.sts.backend.auth;
 import com.sts.backend.auth.dto.AuthResponse;
 import com.sts.backend.auth.dto.LoginRequest;
 import com.sts.backend.auth.dto.RegisterRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -23,15 +27,17 @@ public class AuthController {
   }
 
   /* ------------------- REGISTER ------------------- */
+  // async: the servlet thread is released while the password is hashed
   @PostMapping("/register")
-  public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest req) {
-    return ResponseEntity.ok(auth.register(req));
+  public CompletableFuture<ResponseEntity<AuthResponse>> register(@Valid @RequestBody RegisterRequest req) {
+    return auth.register(req).thenApply(ResponseEntity::ok);
   }
 
   /* ------------------- LOGIN ------------------- */
   @PostMapping("/login")
-  public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest req) {
-    return ResponseEntity.ok(auth.login(req));
+  public CompletableFuture<ResponseEntity<AuthResponse>> login(@Valid @RequestBody LoginRequest req,
+                                                               HttpServletRequest request) {
+    return auth.login(req, request.getRemoteAddr()).thenApply(ResponseEntity::ok);
   }
 
   /**
@@ -47,6 +53,48 @@ public class AuthController {
       @RequestParam(name = "refresh_token", required = false) String refreshParam,
       @RequestBody(required = false) Object body
   ) {
+    String token = tokenFrom(authHeader, refreshParam, body);
+
+    // Validation
+    if (!StringUtils.hasText(token)) {
+      return ResponseEntity.badRequest().body(Map.of("error", "MISSING_REFRESH_TOKEN"));
+    }
+
+    // Success: issue new tokens
+    AuthResponse resp = auth.refresh(token);
+    return ResponseEntity.ok(resp);
+  }
+
+  /**
+   * Logout — ends the session the token belongs to (its refresh and access
+   * tokens). Takes the refresh token like /refresh, or the access token.
+   */
+  @PostMapping("/logout")
+  public ResponseEntity<?> logout(
+      @RequestHeader(name = "Authorization", required = false) String authHeader,
+      @RequestParam(name = "refresh_token", required = false) String refreshParam,
+      @RequestBody(required = false) Object body
+  ) {
+    String token = tokenFrom(authHeader, refreshParam, body);
+    if (!StringUtils.hasText(token)) {
+      return ResponseEntity.badRequest().body(Map.of("error", "MISSING_TOKEN"));
+    }
+    auth.logout(token);
+    return ResponseEntity.noContent().build();
+  }
+
+  /** Logout everywhere — every token the caller was issued until now stops working. */
+  @PostMapping("/logout-all")
+  public ResponseEntity<?> logoutAll(Authentication authentication) {
+    if (authentication == null || !authentication.isAuthenticated()
+        || "anonymousUser".equals(String.valueOf(authentication.getPrincipal()))) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
+    }
+    auth.logoutEverywhere(authentication.getName());
+    return ResponseEntity.noContent().build();
+  }
+
+  private static String tokenFrom(String authHeader, String refreshParam, Object body) {
     String token = null;
 
     // Case 1: JSON body {"refreshToken":"..."}
@@ -68,14 +116,6 @@ public class AuthController {
     if (!StringUtils.hasText(token) && authHeader != null && authHeader.startsWith("Bearer ")) {
       token = authHeader.substring(7).trim();
     }
-
-    // Validation
-    if (!StringUtils.hasText(token)) {
-      return ResponseEntity.badRequest().body(Map.of("error", "MISSING_REFRESH_TOKEN"));
-    }
-
-    // Success: issue new tokens
-    AuthResponse resp = auth.refresh(token);
-    return ResponseEntity.ok(resp);
+    return token;
   }
 }
@@ -4,29 +4,49 @@ import com.sts.backend.auth.dto.AuthResponse;
 import com.sts.backend.auth.dto.LoginRequest;
 import com.sts.backend.auth.dto.RegisterRequest;
 import com.sts.backend.security.JwtService;
+import com.sts.backend.security.RevocationIndex;
 import com.sts.backend.domain.User;
 import com.sts.backend.domain.Role;
 import com.sts.backend.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.sts.backend.user.UserCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class AuthService {
 
   private final UserRepository users;
-  private final PasswordEncoder passwordEncoder;
+  private final UserCache userCache;
+  private final PasswordHasher hasher;
+  private final LoginThrottle throttle;
   private final JwtService jwtService;
+  private final RevocationIndex revocations;
+  private final boolean rotateRefresh;
 
   public AuthService(UserRepository users,
-                     PasswordEncoder passwordEncoder,
-                     JwtService jwtService) {
+                     UserCache userCache,
+                     PasswordHasher hasher,
+                     LoginThrottle throttle,
+                     JwtService jwtService,
+                     RevocationIndex revocations,
+                     @Value("${security.jwt.refresh-rotation:true}") boolean rotateRefresh) {
     this.users = users;
-    this.passwordEncoder = passwordEncoder;
+    this.userCache = userCache;
+    this.hasher = hasher;
+    this.throttle = throttle;
     this.jwtService = jwtService;
+    this.revocations = revocations;
+    this.rotateRefresh = rotateRefresh;
   }
 
   /* ------------------- REGISTER ------------------- */
-  public AuthResponse register(RegisterRequest req) {
+  /** Hashing runs on the PasswordHasher pool; the future completes there. */
+  public CompletableFuture<AuthResponse> register(RegisterRequest req) {
     if (req == null) throw new IllegalArgumentException("request cannot be null");
 
     String username = req.username();
@@ -37,26 +57,29 @@ public class AuthService {
     if (isBlank(email)) throw new IllegalArgumentException("email is required");
     if (isBlank(password)) throw new IllegalArgumentException("password is required");
 
-    if (users.existsByUsername(username))
+    if (users.existsByUsernameIgnoreCase(username))
       throw new IllegalArgumentException("username already exists");
-    if (users.existsByEmail(email))
+    if (users.existsByEmailIgnoreCase(email))
       throw new IllegalArgumentException("email already exists");
 
-    User user = new User();
-    user.setUsername(username);
-    user.setEmail(email);
-    user.setPassword(passwordEncoder.encode(password));
-    user.setRole(Role.USER); // default role
-
-    users.save(user);
+    return hasher.encode(password).thenApply(hash -> {
+      User user = new User();
+      user.setUsername(username);
+      user.setEmail(email);
+      user.setPassword(hash);
+      user.setRole(Role.USER); // default role
 
-    String accessToken = jwtService.generateAccessToken(user);
-    String refreshToken = jwtService.generateRefreshToken(user);
-    return new AuthResponse(accessToken, refreshToken);
+      users.save(user);
+      return issue(user);
+    });
   }
 
   /* ------------------- LOGIN ------------------- */
-  public AuthResponse login(LoginRequest req) {
+  /**
+   * Throttled per identifier and client IP before any lookup or hash work;
+   * the password check runs on the PasswordHasher pool.
+   */
+  public CompletableFuture<AuthResponse> login(LoginRequest req, String clientIp) {
     if (req == null) throw new IllegalArgumentException("request cannot be null");
 
     String id = req.identifier(); // Use the flexible identifier method
@@ -65,37 +88,115 @@ public class AuthService {
     if (isBlank(id) || isBlank(password))
       throw new IllegalArgumentException("credentials required");
 
-    User user = users.findByUsername(id)
-        .or(() -> users.findByEmail(id))
-        .orElseThrow(() -> new IllegalArgumentException("user not found"));
+    throttle.check(id, clientIp);
+
+    User user = userCache.find(id).orElse(null);
+    if (user == null) {
+      throttle.failure(id, clientIp);
+      throw new IllegalArgumentException("user not found");
+    }
+
+    return hasher.matches(password, user.getPassword()).thenApply(ok -> {
+      if (!ok) {
+        throttle.failure(id, clientIp);
+        throw new IllegalArgumentException("invalid credentials");
+      }
+      throttle.success(id);
+      if (hasher.needsRehash(user.getPassword())) rehash(user, password);
+      return issue(user);
+    });
+  }
 
-    if (!passwordEncoder.matches(password, user.getPassword()))
-      throw new IllegalArgumentException("invalid credentials");
+  /** A new token family (login session): access and refresh token share its id. */
+  private AuthResponse issue(User user) {
+    String family = JwtService.newFamily();
+    return new AuthResponse(jwtService.generateAccessToken(user, family),
+        jwtService.generateRefreshToken(user, family));
+  }
 
-    String accessToken = jwtService.generateAccessToken(user);
-    String refreshToken = jwtService.generateRefreshToken(user);
-    return new AuthResponse(accessToken, refreshToken);
+  /** Re-encode at the current cost in the background; skipped when the pool is busy. */
+  private void rehash(User user, String password) {
+    hasher.encodeIfIdle(password).thenAccept(hash -> {
+      if (hash == null) return;
+      user.setPassword(hash);
+      users.save(user);
+    }).exceptionally(e -> {
+      System.err.println("[AUTH] rehash failed for " + user.getUsername() + ": " + e.getMessage());
+      return null;
+    });
   }
 
   /* ------------------- REFRESH ------------------- */
+  /**
+   * With rotation on (default), every refresh revokes the presented jti and
+   * returns a new refresh token of the same family; presenting a rotated
+   * (revoked) jti again means the token was copied, and the whole family is
+   * revoked. With rotation off, a refresh token with most of its life left
+   * is handed back instead of minting another.
+   */
   public AuthResponse refresh(String refreshToken) {
     if (isBlank(refreshToken))
       throw new IllegalArgumentException("refresh token required");
 
-    String username = jwtService.extractUsername(refreshToken);
+    Claims claims;
+    try {
+      claims = jwtService.verify(refreshToken);
+    } catch (JwtException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid refresh token");
+    }
+    if (!JwtService.isRefresh(claims))
+      throw new IllegalArgumentException("invalid refresh token");
+    String username = JwtService.subject(claims);
     if (isBlank(username))
       throw new IllegalArgumentException("invalid token");
 
-    User user = users.findByUsername(username)
-        .or(() -> users.findByEmail(username))
+    String family = JwtService.family(claims);
+    String jti = claims.getId();
+    if (revocations.isFamilyRevoked(family) || revocations.isCutOff(username, JwtService.issuedAtMillis(claims)))
+      throw new IllegalArgumentException("refresh token revoked");
+    if (revocations.isTokenRevoked(jti)) throw reused(username, family);
+
+    User user = userCache.find(username)
         .orElseThrow(() -> new IllegalArgumentException("user not found"));
 
-    if (!jwtService.isTokenValid(refreshToken, user))
-      throw new IllegalArgumentException("invalid refresh token");
+    boolean rotate = rotateRefresh || jti == null || !jwtService.hasMostOfLifeLeft(claims);
+    // claim the old refresh token before minting: of two concurrent rotations only one gets true
+    if (rotate && !revocations.revokeToken(jti, JwtService.expiresAt(claims))) throw reused(username, family);
+
+    if (family == null) family = JwtService.newFamily();   // token minted before families existed
+    String newAccess = jwtService.generateAccessToken(user, family);
+    if (!rotate) return new AuthResponse(newAccess, refreshToken);
+    return new AuthResponse(newAccess, jwtService.generateRefreshToken(user, family));
+  }
+
+  /** A rotated refresh token came back: end its family, since one of the two holders is not the user. */
+  private IllegalArgumentException reused(String username, String family) {
+    revocations.revokeFamily(family);
+    System.err.println("[AUTH] refresh token reuse for " + username + ", family " + family + " revoked");
+    return new IllegalArgumentException("refresh token revoked");
+  }
+
+  /* ------------------- LOGOUT ------------------- */
+  /** Revokes the token's family: its refresh and access tokens stop working immediately. */
+  public void logout(String token) {
+    if (isBlank(token))
+      throw new IllegalArgumentException("token required");
+    Claims claims;
+    try {
+      claims = jwtService.verify(token);
+    } catch (ExpiredJwtException e) {
+      claims = e.getClaims();   // logging out with an expired token still ends its family
+    } catch (JwtException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid token");
+    }
+    String family = JwtService.family(claims);
+    if (family != null) revocations.revokeFamily(family);
+    else revocations.revokeToken(claims.getId(), JwtService.expiresAt(claims));
+  }
 
-    String newAccess = jwtService.generateAccessToken(user);
-    String newRefresh = jwtService.generateRefreshToken(user);
-    return new AuthResponse(newAccess, newRefresh);
+  /** Security event for one user: all of their current sessions end. */
+  public void logoutEverywhere(String username) {
+    revocations.revokeUser(username);
   }
 
   /* ------------------- UTIL ------------------- */
@@ -0,0 +1,79 @@
+package com.sts.backend.auth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sts.backend.common.RetryLaterException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoginThrottle — failed-login counters per identifier and per client IP
+ * over a fixed window that starts at the first failure.
+ *
+ * {@link #check} runs before any user lookup or hash work, so a brute-force
+ * burst is turned away with 429 + Retry-After for the rest of its window.
+ * Both maps are size-bounded; a success clears the identifier's counter.
+ */
+@Component
+public class LoginThrottle {
+
+  private final int maxPerIdentifier;
+  private final int maxPerIp;
+  private final long windowMs;
+  private final Cache<String, Window> byIdentifier;
+  private final Cache<String, Window> byIp;
+
+  public LoginThrottle(
+      @Value("${auth.throttle.max-failures-per-identifier:5}") int maxPerIdentifier,
+      @Value("${auth.throttle.max-failures-per-ip:50}") int maxPerIp,
+      @Value("${auth.throttle.window-ms:900000}") long windowMs,
+      @Value("${auth.throttle.max-entries:100000}") long maxEntries
+  ) {
+    this.maxPerIdentifier = maxPerIdentifier;
+    this.maxPerIp = maxPerIp;
+    this.windowMs = windowMs;
+    this.byIdentifier = Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(windowMs)).maximumSize(maxEntries).build();
+    this.byIp = Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(windowMs)).maximumSize(maxEntries).build();
+  }
+
+  public void check(String identifier, String ip) {
+    long now = System.currentTimeMillis();
+    reject(byIdentifier.getIfPresent(key(identifier)), maxPerIdentifier, now);
+    if (ip != null) reject(byIp.getIfPresent(ip), maxPerIp, now);
+  }
+
+  public void failure(String identifier, String ip) {
+    long now = System.currentTimeMillis();
+    byIdentifier.get(key(identifier), k -> new Window(now)).failures.incrementAndGet();
+    if (ip != null) byIp.get(ip, k -> new Window(now)).failures.incrementAndGet();
+  }
+
+  public void success(String identifier) {
+    byIdentifier.invalidate(key(identifier));
+  }
+
+  private void reject(Window w, int max, long now) {
+    if (w == null || w.failures.get() < max) return;
+    long left = w.start + windowMs - now;
+    if (left <= 0) return;
+    throw new RetryLaterException(HttpStatus.TOO_MANY_REQUESTS, "too many failed logins", (left + 999) / 1000);
+  }
+
+  private static String key(String identifier) {
+    return identifier == null ? "" : identifier.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Window {
+    final long start;
+    final AtomicInteger failures = new AtomicInteger();
+
+    Window(long start) {
+      this.start = start;
+    }
+  }
+}
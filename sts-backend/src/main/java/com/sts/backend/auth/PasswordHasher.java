@@ -0,0 +1,124 @@
+package com.sts.backend.auth;
+
+import com.sts.backend.common.RetryLaterException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordHasher — BCrypt off the servlet threads.
+ *
+ * Hashing runs on a small fixed pool with a bounded queue; when the queue
+ * is full the request is refused with 503 + Retry-After instead of piling
+ * up behind a login storm and starving the quote and order APIs.
+ *
+ * The cost is auth.hashing.cost, or, when auth.hashing.adaptive is on, the
+ * highest cost in [min-cost, max-cost] whose hash fits target-ms on this
+ * machine (measured once at startup). Hashes stored at another cost are
+ * re-encoded after the next successful login ({@link #needsRehash}).
+ */
+@Component
+public class PasswordHasher {
+
+  private final ThreadPoolExecutor pool;
+  private final BCryptPasswordEncoder encoder;
+  private final int cost;
+  private final long retryAfterSeconds;
+
+  public PasswordHasher(
+      @Value("${auth.hashing.threads:0}") int threads,
+      @Value("${auth.hashing.queue:64}") int queue,
+      @Value("${auth.hashing.cost:10}") int cost,
+      @Value("${auth.hashing.adaptive:false}") boolean adaptive,
+      @Value("${auth.hashing.target-ms:250}") long targetMs,
+      @Value("${auth.hashing.min-cost:10}") int minCost,
+      @Value("${auth.hashing.max-cost:14}") int maxCost,
+      @Value("${auth.hashing.retry-after-seconds:2}") long retryAfterSeconds
+  ) {
+    int n = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    AtomicInteger seq = new AtomicInteger();
+    this.pool = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queue)), r -> {
+          Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    this.cost = adaptive ? calibrate(minCost, maxCost, targetMs) : cost;
+    this.encoder = new BCryptPasswordEncoder(this.cost);
+    this.retryAfterSeconds = retryAfterSeconds;
+    System.out.println("[AUTH] bcrypt cost=" + this.cost + (adaptive ? " (calibrated, target " + targetMs + "ms)" : "")
+        + ", " + n + " hashing threads, queue " + queue);
+  }
+
+  public CompletableFuture<Boolean> matches(String raw, String encoded) {
+    return submit(() -> encoder.matches(raw, encoded));
+  }
+
+  public CompletableFuture<String> encode(String raw) {
+    return submit(() -> encoder.encode(raw));
+  }
+
+  /** True when the hash was made with another cost than the current one. */
+  public boolean needsRehash(String encoded) {
+    int c = costOf(encoded);
+    return c > 0 && c != cost;
+  }
+
+  /** Like {@link #encode}, but gives up (empty) instead of failing when the pool is saturated. */
+  public CompletableFuture<String> encodeIfIdle(String raw) {
+    if (pool.getQueue().remainingCapacity() == 0) return CompletableFuture.completedFuture(null);
+    try {
+      return CompletableFuture.supplyAsync(() -> encoder.encode(raw), pool);
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+
+  public int cost() {
+    return cost;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    pool.shutdownNow();
+  }
+
+  private <T> CompletableFuture<T> submit(java.util.function.Supplier<T> work) {
+    try {
+      return CompletableFuture.supplyAsync(work, pool);
+    } catch (RejectedExecutionException e) {
+      throw new RetryLaterException(HttpStatus.SERVICE_UNAVAILABLE, "authentication busy, retry shortly", retryAfterSeconds);
+    }
+  }
+
+  /** "$2a$12$..." → 12; -1 if not a BCrypt hash. */
+  static int costOf(String encoded) {
+    if (encoded == null || encoded.length() < 7 || encoded.charAt(0) != '$' || encoded.charAt(3) != '$') return -1;
+    char a = encoded.charAt(4), b = encoded.charAt(5);
+    if (!Character.isDigit(a) || !Character.isDigit(b)) return -1;
+    return (a - '0') * 10 + (b - '0');
+  }
+
+  /** Each extra cost step doubles the work: time the lowest cost, then extrapolate. */
+  private static int calibrate(int minCost, int maxCost, long targetMs) {
+    BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minCost);
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      long t0 = System.nanoTime();
+      probe.encode("calibration");
+      best = Math.min(best, System.nanoTime() - t0);
+    }
+    double ms = Math.max(0.01, best / 1e6);
+    int c = minCost;
+    while (c < maxCost && ms * 2 <= targetMs) {
+      ms *= 2;
+      c++;
+    }
+    return c;
+  }
+}
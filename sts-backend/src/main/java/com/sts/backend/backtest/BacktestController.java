@@ -0,0 +1,54 @@
+package com.sts.backend.backtest;
+
+import com.sts.backend.common.Accounts;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/backtests")
+public class BacktestController {
+
+  private final BacktestService backtests;
+  private final TickRecorder recorder;
+
+  public BacktestController(BacktestService backtests, TickRecorder recorder) {
+    this.backtests = backtests;
+    this.recorder = recorder;
+  }
+
+  // POST /api/backtests  → 202 with the job; poll GET /api/backtests/{id}
+  @PostMapping
+  public ResponseEntity<Map<String, Object>> submit(@RequestBody BacktestReq req, Authentication auth) {
+    BacktestJob job = backtests.submit(Accounts.of(auth), req);
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.view(false));
+  }
+
+  // GET /api/backtests
+  @GetMapping
+  public List<Map<String, Object>> list(Authentication auth) {
+    return backtests.list(Accounts.of(auth));
+  }
+
+  // GET /api/backtests/{id}  (results sorted by return, best first)
+  @GetMapping("/{id}")
+  public Map<String, Object> get(@PathVariable long id, Authentication auth) {
+    return backtests.get(Accounts.of(auth), id).view(true);
+  }
+
+  // DELETE /api/backtests/{id}  (cancel)
+  @DeleteMapping("/{id}")
+  public Map<String, Object> cancel(@PathVariable long id, Authentication auth) {
+    return backtests.cancel(Accounts.of(auth), id).view(false);
+  }
+
+  // GET /api/backtests/history?symbol=AAPL  (what is recorded)
+  @GetMapping("/history")
+  public Map<String, Object> history(@RequestParam String symbol) {
+    return recorder.stats(symbol.trim().toUpperCase());
+  }
+}
@@ -0,0 +1,49 @@
+package com.sts.backend.backtest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** One submitted grid run; fields are read by status polls while workers update progress. */
+public final class BacktestJob {
+
+  public enum Status { RUNNING, DONE, CANCELLED, FAILED }
+
+  final long id;
+  final String account;
+  final BacktestReq req;
+  final int combos;
+  final long ticks;
+  final Instant submittedAt = Instant.now();
+  final AtomicInteger completed = new AtomicInteger();
+  volatile boolean cancelled;
+  volatile Status status = Status.RUNNING;
+  volatile List<BacktestResult> results = List.of();
+  volatile String error;
+  volatile Instant finishedAt;
+
+  BacktestJob(long id, String account, BacktestReq req, int combos, long ticks) {
+    this.id = id;
+    this.account = account;
+    this.req = req;
+    this.combos = combos;
+    this.ticks = ticks;
+  }
+
+  public Map<String, Object> view(boolean withResults) {
+    Map<String, Object> m = new java.util.LinkedHashMap<>();
+    m.put("id", id);
+    m.put("symbol", req.symbol());
+    m.put("strategy", req.strategy());
+    m.put("status", status.name());
+    m.put("combos", combos);
+    m.put("completed", completed.get());
+    m.put("ticks", ticks);
+    m.put("submittedAt", submittedAt);
+    if (finishedAt != null) m.put("finishedAt", finishedAt);
+    if (error != null) m.put("error", error);
+    if (withResults) m.put("results", results);
+    return m;
+  }
+}
@@ -0,0 +1,13 @@
+package com.sts.backend.backtest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * POST /api/backtests body, e.g.
+ * {"symbol":"AAPL","strategy":"SMA_CROSS","params":{"fast":[5,10],"slow":[50,100]}}.
+ * Every combination of the listed values is run; from/to (epoch ms) default
+ * to the whole recording, capital to 100 000.
+ */
+public record BacktestReq(String symbol, String strategy, Map<String, List<Integer>> params,
+                          Long from, Long to, Double capital) {}
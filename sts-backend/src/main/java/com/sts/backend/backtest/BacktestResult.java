@@ -0,0 +1,7 @@
+package com.sts.backend.backtest;
+
+import java.util.Map;
+
+/** Summary of one parameter combination; percentages are of starting capital / peak equity. */
+public record BacktestResult(Map<String, Integer> params, double returnPct, double maxDrawdownPct,
+                             double sharpe, int trades, long ticks) {}
@@ -0,0 +1,306 @@
+package com.sts.backend.backtest;
+
+import com.sts.backend.orders.PaperFillSimulator;
+import com.sts.backend.portfolio.Lot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BacktestService — runs a strategy's parameter grid over recorded ticks.
+ *
+ * Every combination replays the same {@link TickRecorder.History} (shared
+ * chunks, no copy) and trades through the paper venue's fill-price model
+ * and the portfolio's {@link Lot} arithmetic, so a backtest fills and
+ * values positions exactly like paper trading does. Combinations are split
+ * over a dedicated ForkJoin pool; a job is cancelled cooperatively, each
+ * run checking the flag every few thousand ticks.
+ */
+@Service
+public class BacktestService {
+
+  private static final int CANCEL_CHECK_MASK = 4095;
+  private static final double SESSION_MS = 6.5 * 3_600_000;
+  private static final double SESSIONS_PER_YEAR = 252;
+
+  private final TickRecorder recorder;
+  private final PaperFillSimulator venue;
+  private final ForkJoinPool pool;
+  private final int maxCombos;
+  private final int maxWindow;
+  private final int maxRunningPerUser;
+  private final int retainedJobs;
+
+  private final AtomicLong seq = new AtomicLong();
+  private final Map<Long, BacktestJob> jobs = new ConcurrentHashMap<>();
+
+  public BacktestService(
+      TickRecorder recorder,
+      PaperFillSimulator venue,
+      @Value("${backtest.threads:0}") int threads,
+      @Value("${backtest.max-combos:2000}") int maxCombos,
+      @Value("${backtest.max-window:10000}") int maxWindow,
+      @Value("${backtest.max-running-per-user:2}") int maxRunningPerUser,
+      @Value("${backtest.retained-jobs:100}") int retainedJobs
+  ) {
+    this.recorder = recorder;
+    this.venue = venue;
+    this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    this.maxCombos = maxCombos;
+    this.maxWindow = Math.max(2, maxWindow);
+    this.maxRunningPerUser = maxRunningPerUser;
+    this.retainedJobs = retainedJobs;
+  }
+
+  public BacktestJob submit(String account, BacktestReq req) {
+    if (req == null || req.symbol() == null || req.symbol().isBlank() || req.strategy() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "symbol and strategy are required");
+    }
+    String strategy = req.strategy().trim().toUpperCase();
+    List<String> names = Strategy.PARAMS.get(strategy);
+    if (names == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "strategy must be one of " + Strategy.PARAMS.keySet());
+    }
+    String symbol = req.symbol().trim().toUpperCase();
+    long from = req.from() == null ? Long.MIN_VALUE : req.from();
+    long to = req.to() == null ? Long.MAX_VALUE : req.to();
+    TickRecorder.History history = recorder.history(symbol, from, to);
+    if (history.size() < 2) {
+      throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "no recorded ticks for " + symbol + " in range");
+    }
+
+    // window parameters size each instance's buffers: bound them before anything is allocated
+    int bound = (int) Math.min(maxWindow, history.size());
+    List<Map<String, Integer>> combos = grid(names, req.params() == null ? Map.of() : req.params(), bound);
+    List<Map<String, Integer>> valid = new ArrayList<>();
+    for (Map<String, Integer> c : combos) {
+      try {
+        Strategy.check(strategy, c);
+        valid.add(c);
+      } catch (IllegalArgumentException ignored) {
+        // e.g. fast >= slow: skip that cell of the grid
+      }
+    }
+    if (valid.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "no valid parameter combination");
+    }
+
+    BacktestReq normalized = new BacktestReq(symbol, strategy, req.params(), req.from(), req.to(),
+        req.capital() == null || req.capital() <= 0 ? 100_000.0 : req.capital());
+    BacktestJob job;
+    synchronized (jobs) {   // count and register as one step, so concurrent submits cannot both pass the limit
+      long running = jobs.values().stream()
+          .filter(j -> j.account.equals(account) && j.status == BacktestJob.Status.RUNNING).count();
+      if (running >= maxRunningPerUser) {
+        throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "at most " + maxRunningPerUser + " running backtests");
+      }
+      job = new BacktestJob(seq.incrementAndGet(), account, normalized, valid.size(), history.size());
+      jobs.put(job.id, job);
+    }
+    evictFinished();
+    pool.execute(() -> run(job, history, valid));
+    return job;
+  }
+
+  public List<Map<String, Object>> list(String account) {
+    List<Map<String, Object>> out = new ArrayList<>();
+    jobs.values().stream()
+        .filter(j -> j.account.equals(account))
+        .sorted(Comparator.comparingLong((BacktestJob j) -> j.id).reversed())
+        .forEach(j -> out.add(j.view(false)));
+    return out;
+  }
+
+  public BacktestJob get(String account, long id) {
+    BacktestJob j = jobs.get(id);
+    if (j == null || !j.account.equals(account)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no backtest " + id);
+    }
+    return j;
+  }
+
+  public BacktestJob cancel(String account, long id) {
+    BacktestJob j = get(account, id);
+    j.cancelled = true;
+    return j;
+  }
+
+  /* ------------------- RUN ------------------- */
+
+  private void run(BacktestJob job, TickRecorder.History history, List<Map<String, Integer>> combos) {
+    try {
+      List<BacktestResult> results = new Grid(job, history, combos, 0, combos.size()).invoke();
+      results.sort(Comparator.comparingDouble(BacktestResult::returnPct).reversed());
+      job.results = results;
+      job.status = job.cancelled ? BacktestJob.Status.CANCELLED : BacktestJob.Status.DONE;
+    } catch (RuntimeException e) {
+      job.error = e.getMessage();
+      job.status = BacktestJob.Status.FAILED;
+    } finally {
+      job.finishedAt = Instant.now();
+    }
+  }
+
+  private final class Grid extends RecursiveTask<List<BacktestResult>> {
+    final BacktestJob job;
+    final TickRecorder.History history;
+    final List<Map<String, Integer>> combos;
+    final int lo, hi;
+
+    Grid(BacktestJob job, TickRecorder.History history, List<Map<String, Integer>> combos, int lo, int hi) {
+      this.job = job;
+      this.history = history;
+      this.combos = combos;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected List<BacktestResult> compute() {
+      if (hi - lo > 1) {
+        int mid = (lo + hi) >>> 1;
+        Grid left = new Grid(job, history, combos, lo, mid);
+        left.fork();
+        List<BacktestResult> right = new Grid(job, history, combos, mid, hi).compute();
+        List<BacktestResult> out = left.join();
+        out.addAll(right);
+        return out;
+      }
+      List<BacktestResult> out = new ArrayList<>(1);
+      if (job.cancelled) return out;
+      BacktestResult r = runOne(job, history, combos.get(lo));
+      if (r != null) out.add(r);
+      job.completed.incrementAndGet();
+      return out;
+    }
+  }
+
+  /** One combination; {@code null} if the job was cancelled mid-run. */
+  private BacktestResult runOne(BacktestJob job, TickRecorder.History history, Map<String, Integer> params) {
+    Strategy strategy = Strategy.create(job.req.strategy(), params);
+    double capital = job.req.capital();
+    Sim s = new Sim(capital);
+
+    history.forEach((ts, price) -> {
+      if ((s.ticks & CANCEL_CHECK_MASK) == 0 && job.cancelled) return false;
+      if (s.ticks == 0) s.firstTs = ts;
+      s.lastTs = ts;
+      s.ticks++;
+
+      int target = strategy.onTick(price);
+      if (target == 1 && s.lot.qty() == 0) {
+        double cash = capital + s.realized;
+        long qty = (long) (cash / venue.fillPrice(true, 1, price, Double.NaN));
+        // size impact raises the price of a larger order: re-size at what this qty would pay, then trim
+        if (qty > 0) qty = (long) (cash / venue.fillPrice(true, qty, price, Double.NaN));
+        while (qty > 0 && qty * venue.fillPrice(true, qty, price, Double.NaN) > cash) qty--;
+        if (qty > 0) {
+          s.realized += s.lot.trade(qty, venue.fillPrice(true, qty, price, Double.NaN));
+          s.trades++;
+        }
+      } else if (target == 0 && s.lot.qty() > 0) {
+        long qty = s.lot.qty();
+        s.realized += s.lot.trade(-qty, venue.fillPrice(false, qty, price, Double.NaN));
+        s.trades++;
+      }
+      s.mark(capital + s.realized + s.lot.qty() * (price - s.lot.avgCost()));
+      return true;
+    });
+    if (job.cancelled) return null;
+
+    double sharpe = 0;
+    if (s.n > 1 && s.m2 > 0 && s.lastTs > s.firstTs) {
+      double sd = Math.sqrt(s.m2 / (s.n - 1));
+      double tickMs = (double) (s.lastTs - s.firstTs) / (s.ticks - 1);
+      double perYear = SESSIONS_PER_YEAR * SESSION_MS / tickMs;
+      sharpe = s.mean / sd * Math.sqrt(perYear);
+    }
+    return new BacktestResult(params,
+        round2((s.equity / capital - 1) * 100.0),
+        round2(s.maxDrawdown * 100.0),
+        round2(sharpe),
+        s.trades,
+        s.ticks);
+  }
+
+  /** Running state of one replay: position, equity, drawdown and Welford moments of tick returns. */
+  private static final class Sim {
+    final Lot lot = new Lot();
+    double realized;
+    int trades;
+    long ticks, firstTs, lastTs;
+    double equity, peak, maxDrawdown;
+    long n;
+    double mean, m2;
+
+    Sim(double capital) {
+      equity = capital;
+      peak = capital;
+    }
+
+    void mark(double e) {
+      if (equity > 0) {
+        double r = e / equity - 1;
+        n++;
+        double d = r - mean;
+        mean += d / n;
+        m2 += d * (r - mean);
+      }
+      equity = e;
+      if (e > peak) peak = e;
+      else if (peak > 0) maxDrawdown = Math.max(maxDrawdown, (peak - e) / peak);
+    }
+  }
+
+  /* ------------------- HELPERS ------------------- */
+
+  private List<Map<String, Integer>> grid(List<String> names, Map<String, List<Integer>> values, int bound) {
+    List<Map<String, Integer>> out = new ArrayList<>();
+    out.add(new LinkedHashMap<>());
+    for (String name : names) {
+      List<Integer> vs = values.get(name);
+      if (vs == null || vs.isEmpty()) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "params." + name + " needs at least one value");
+      }
+      List<Map<String, Integer>> next = new ArrayList<>(out.size() * vs.size());
+      for (Map<String, Integer> partial : out) {
+        for (Integer v : vs) {
+          if (v == null) continue;
+          if (v < 1 || v > bound) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "params." + name + " values must be within 1.." + bound + " (window cap and recorded ticks)");
+          }
+          Map<String, Integer> m = new LinkedHashMap<>(partial);
+          m.put(name, v);
+          next.add(m);
+        }
+      }
+      if (next.size() > maxCombos) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "grid exceeds " + maxCombos + " combinations");
+      }
+      out = next;
+    }
+    return out;
+  }
+
+  private void evictFinished() {
+    if (jobs.size() <= retainedJobs) return;
+    jobs.values().stream()
+        .filter(j -> j.status != BacktestJob.Status.RUNNING)
+        .sorted(Comparator.comparingLong(j -> j.id))
+        .limit(jobs.size() - retainedJobs)
+        .forEach(j -> jobs.remove(j.id));
+  }
+
+  private static double round2(double v) {
+    return Math.round(v * 100.0) / 100.0;
+  }
+}
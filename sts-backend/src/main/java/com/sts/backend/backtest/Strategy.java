@@ -0,0 +1,123 @@
+package com.sts.backend.backtest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Strategy — a rule fed one price per tick that answers the position it
+ * wants: 1 long, 0 flat. State is primitive and O(1) per tick, so a
+ * parameter grid can run thousands of instances side by side.
+ */
+interface Strategy {
+
+  int onTick(double price);
+
+  /** Parameter names per strategy, in grid order. */
+  Map<String, List<String>> PARAMS = Map.of(
+      "SMA_CROSS", List.of("fast", "slow"),
+      "BREAKOUT", List.of("lookback"));
+
+  static Strategy create(String name, Map<String, Integer> p) {
+    check(name, p);
+    return switch (name) {
+      case "SMA_CROSS" -> new SmaCross(p.get("fast"), p.get("slow"));
+      case "BREAKOUT" -> new Breakout(p.get("lookback"));
+      default -> throw new IllegalArgumentException("unknown strategy " + name);
+    };
+  }
+
+  /** Validates a parameter combination without allocating the strategy's buffers. */
+  static void check(String name, Map<String, Integer> p) {
+    switch (name) {
+      case "SMA_CROSS" -> {
+        Integer fast = p.get("fast"), slow = p.get("slow");
+        if (fast == null || slow == null || fast < 1 || slow <= fast) {
+          throw new IllegalArgumentException("need 1 <= fast < slow");
+        }
+      }
+      case "BREAKOUT" -> {
+        Integer lookback = p.get("lookback");
+        if (lookback == null || lookback < 2) throw new IllegalArgumentException("lookback must be >= 2");
+      }
+      default -> throw new IllegalArgumentException("unknown strategy " + name);
+    }
+  }
+
+  /** Long while the fast SMA is above the slow one. */
+  final class SmaCross implements Strategy {
+    private final double[] ring;
+    private final int fast, slow;
+    private int n, head;
+    private double fastSum, slowSum;
+
+    SmaCross(int fast, int slow) {
+      this.fast = fast;
+      this.slow = slow;
+      this.ring = new double[slow];
+    }
+
+    @Override
+    public int onTick(double price) {
+      if (n >= fast) fastSum -= ring[(head - fast + slow) % slow];
+      if (n == slow) slowSum -= ring[head];
+      ring[head] = price;
+      head = (head + 1) % slow;
+      fastSum += price;
+      slowSum += price;
+      if (n < slow) n++;
+      if (n < slow) return 0;
+      return fastSum / fast > slowSum / slow ? 1 : 0;
+    }
+  }
+
+  /**
+   * Donchian breakout: go long above the highest price of the last
+   * {@code lookback} ticks, exit below the lowest. Max / min come from
+   * monotonic deques (amortized O(1)).
+   */
+  final class Breakout implements Strategy {
+    private final int lookback;
+    private final long[] maxIdx, minIdx;
+    private final double[] maxPx, minPx;
+    private int maxHead, maxTail, minHead, minTail;
+    private long t;
+    private int position;
+
+    Breakout(int lookback) {
+      this.lookback = lookback;
+      int cap = lookback + 1;
+      maxIdx = new long[cap];
+      minIdx = new long[cap];
+      maxPx = new double[cap];
+      minPx = new double[cap];
+    }
+
+    @Override
+    public int onTick(double price) {
+      if (t >= lookback) {
+        double hi = maxPx[maxHead % maxPx.length];
+        double lo = minPx[minHead % minPx.length];
+        if (price > hi) position = 1;
+        else if (price < lo) position = 0;
+      }
+      push(price);
+      return position;
+    }
+
+    private void push(double price) {
+      int cap = maxPx.length;
+      while (maxTail > maxHead && maxPx[(maxTail - 1) % cap] <= price) maxTail--;
+      maxPx[maxTail % cap] = price;
+      maxIdx[maxTail % cap] = t;
+      maxTail++;
+      while (minTail > minHead && minPx[(minTail - 1) % cap] >= price) minTail--;
+      minPx[minTail % cap] = price;
+      minIdx[minTail % cap] = t;
+      minTail++;
+      t++;
+      long oldest = t - lookback;
+      while (maxIdx[maxHead % cap] < oldest) maxHead++;
+      while (minIdx[minHead % cap] < oldest) minHead++;
+    }
+  }
+}
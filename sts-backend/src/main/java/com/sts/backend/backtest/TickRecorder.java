@@ -0,0 +1,133 @@
+package com.sts.backend.backtest;
+
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TickRecorder — every published tick, per symbol, in fixed-size primitive
+ * chunks.
+ *
+ * A symbol keeps at most {@code max-ticks-per-symbol} ticks; when a chunk
+ * fills and the cap is exceeded the oldest chunk is dropped. Full chunks
+ * are never written again, so a backtest takes a {@link History} that
+ * shares them by reference (only the open chunk is copied): any number of
+ * concurrent runs read the same arrays without copying the history.
+ */
+@Component
+public class TickRecorder {
+
+  static final int CHUNK = 16_384;
+
+  private final int maxChunks;
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+  public TickRecorder(QuoteBook quotes,
+                      @Value("${backtest.max-ticks-per-symbol:1000000}") int maxTicksPerSymbol) {
+    this.maxChunks = Math.max(2, (maxTicksPerSymbol + CHUNK - 1) / CHUNK);
+    quotes.addListener(this::onTick);
+  }
+
+  private void onTick(String symbol, double price, long ts) {
+    series.computeIfAbsent(symbol, k -> new Series()).add(ts, price, maxChunks);
+  }
+
+  /** Ticks recorded for the symbol within [from, to]. */
+  public History history(String symbol, long from, long to) {
+    Series s = series.get(symbol);
+    if (s == null) return new History(List.of(), 0, from, to);
+    return s.view(from, to);
+  }
+
+  public Map<String, Object> stats(String symbol) {
+    Series s = series.get(symbol);
+    if (s == null) return Map.of("symbol", symbol, "ticks", 0);
+    synchronized (s) {
+      return Map.of("symbol", symbol, "ticks", s.size(),
+          "from", s.full.isEmpty() ? s.open.ts[0] : s.full.peekFirst().ts[0],
+          "to", s.open.n > 0 ? s.open.ts[s.open.n - 1] : s.full.peekLast().ts[CHUNK - 1]);
+    }
+  }
+
+  static final class Chunk {
+    final long[] ts;
+    final double[] px;
+    int n;
+
+    Chunk(int capacity) {
+      ts = new long[capacity];
+      px = new double[capacity];
+    }
+  }
+
+  /**
+   * Read-only window over recorded chunks. {@link #forEach} streams the
+   * ticks in time order without materializing them.
+   */
+  public record History(List<Chunk> chunks, long size, long from, long to) {
+
+    @FunctionalInterface
+    public interface TickSink {
+      /** @return false to stop early */
+      boolean accept(long ts, double price);
+    }
+
+    public void forEach(TickSink sink) {
+      for (Chunk c : chunks) {
+        for (int i = 0; i < c.n; i++) {
+          long t = c.ts[i];
+          if (t < from) continue;
+          if (t > to) return;
+          if (!sink.accept(t, c.px[i])) return;
+        }
+      }
+    }
+  }
+
+  private static final class Series {
+    final ArrayDeque<Chunk> full = new ArrayDeque<>();
+    Chunk open = new Chunk(CHUNK);
+    long lastTs = Long.MIN_VALUE;
+
+    synchronized void add(long ts, double price, int maxChunks) {
+      if (ts <= lastTs) return;        // replays and out-of-order stamps
+      lastTs = ts;
+      open.ts[open.n] = ts;
+      open.px[open.n] = price;
+      if (++open.n == CHUNK) {
+        full.addLast(open);
+        while (full.size() >= maxChunks) full.pollFirst();
+        open = new Chunk(CHUNK);
+      }
+    }
+
+    long size() {
+      return (long) full.size() * CHUNK + open.n;
+    }
+
+    synchronized History view(long from, long to) {
+      List<Chunk> out = new ArrayList<>(full.size() + 1);
+      long size = 0;
+      for (Chunk c : full) {
+        if (c.ts[c.n - 1] < from || c.ts[0] > to) continue;
+        out.add(c);
+        size += c.n;
+      }
+      if (open.n > 0 && open.ts[0] <= to && open.ts[open.n - 1] >= from) {
+        Chunk copy = new Chunk(open.n);
+        System.arraycopy(open.ts, 0, copy.ts, 0, open.n);
+        System.arraycopy(open.px, 0, copy.px, 0, open.n);
+        copy.n = open.n;
+        out.add(copy);
+        size += copy.n;
+      }
+      return new History(out, size, from, to);
+    }
+  }
+}
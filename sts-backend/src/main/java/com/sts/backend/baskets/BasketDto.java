@@ -0,0 +1,7 @@
+package com.sts.backend.baskets;
+
+import java.util.Map;
+
+/** A user's basket as listed by /api/baskets; {@code sharedBy} counts users with the identical definition. */
+public record BasketDto(String name, String symbol, Map<String, Double> weights, Double value,
+                        boolean ready, int sharedBy) {}
@@ -0,0 +1,270 @@
+package com.sts.backend.baskets;
+
+import com.sts.backend.quotes.QuoteBook;
+import com.sts.backend.quotes.ReferencePrices;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * BasketHub — user-defined baskets (constituent → units) streamed as
+ * synthetic {@code @NAME} symbols.
+ *
+ * Definitions are canonicalized (sorted constituents and weights), so the
+ * same basket saved by many users, under any name, is one computation.
+ * A constituent tick moves each basket holding it by
+ * weight × (new − previous price); the full sum is only redone every
+ * {@value #RESUM_EVERY} updates to shed floating-point drift.
+ *
+ * Names are per user: {@code @TECH5} resolves through the subscribing
+ * user's own definitions. Constituents must be in the QuoteBook universe;
+ * a shared basket tracks each of them once and untracks them when its last
+ * user deletes or redefines it.
+ */
+@Component
+public class BasketHub {
+
+  private static final Pattern NAME = Pattern.compile("[A-Z0-9_]{1,16}");
+  private static final int RESUM_EVERY = 1024;
+
+  private final QuoteBook quotes;
+  private final ReferencePrices refs;
+  private final int maxPerUser;
+  private final int maxConstituents;
+
+  private final Map<String, Basket> byKey = new ConcurrentHashMap<>();
+  private final Map<String, List<Member>> bySymbol = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, Basket>> byUser = new ConcurrentHashMap<>();
+
+  public BasketHub(
+      QuoteBook quotes,
+      ReferencePrices refs,
+      @Value("${baskets.max-per-user:20}") int maxPerUser,
+      @Value("${baskets.max-constituents:50}") int maxConstituents
+  ) {
+    this.quotes = quotes;
+    this.refs = refs;
+    this.maxPerUser = maxPerUser;
+    this.maxConstituents = maxConstituents;
+    quotes.addListener(this::onTick);
+  }
+
+  /* ------------------- DEFINITIONS ------------------- */
+
+  public synchronized BasketDto define(String user, String name, Map<String, Double> weights) {
+    String n = name == null ? "" : name.trim().toUpperCase();
+    if (n.startsWith("@")) n = n.substring(1);
+    if (!NAME.matcher(n).matches()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "name must be 1-16 of A-Z, 0-9, _");
+    }
+    TreeMap<String, Double> canon = canonical(weights);
+    Map<String, Basket> mine = byUser.computeIfAbsent(user, k -> new ConcurrentHashMap<>());
+    if (!mine.containsKey(n) && mine.size() >= maxPerUser) {
+      throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "at most " + maxPerUser + " baskets");
+    }
+
+    String key = canon.toString();
+    Basket b = byKey.get(key);
+    if (b == null) {
+      b = new Basket(key, canon);
+      byKey.put(key, b);
+      for (int i = 0; i < b.symbols.length; i++) {
+        bySymbol.computeIfAbsent(b.symbols[i], k -> new CopyOnWriteArrayList<>()).add(new Member(b, i));
+        QuoteBook.Quote q = quotes.get(b.symbols[i]);
+        if (q != null) {
+          synchronized (b) {
+            b.apply(i, q.price(), q.ts());
+          }
+        }
+        quotes.track(b.symbols[i]);
+      }
+    }
+    b.users++;
+    Basket old = mine.put(n, b);
+    if (old != null) unref(old);
+    return dto(n, b);
+  }
+
+  public synchronized boolean delete(String user, String name) {
+    Map<String, Basket> mine = byUser.get(user);
+    if (mine == null) return false;
+    Basket b = mine.remove(strip(name));
+    if (b == null) return false;
+    unref(b);
+    return true;
+  }
+
+  public List<BasketDto> list(String user) {
+    Map<String, Basket> mine = byUser.getOrDefault(user, Map.of());
+    List<BasketDto> out = new ArrayList<>();
+    new TreeMap<>(mine).forEach((n, b) -> out.add(dto(n, b)));
+    return out;
+  }
+
+  /** Constituents of the user's basket, or empty if the name is unknown. */
+  public Set<String> constituents(String user, String name) {
+    Basket b = resolve(user, name);
+    return b == null ? Set.of() : Set.of(b.symbols);
+  }
+
+  /** QUOTE frame for the user's {@code @NAME}, or {@code null} if unknown or not yet priced. */
+  public String frame(String user, String name) {
+    Basket b = resolve(user, name);
+    if (b == null) return null;
+    String n = strip(name);
+    synchronized (b) {
+      if (b.missing > 0) return null;
+      if (b.frameVersion != b.version) {
+        b.frames.clear();
+        b.frameVersion = b.version;
+      }
+      return b.frames.computeIfAbsent(n, k -> {
+        double ref = reference(b);
+        double chg = ref > 0 ? (b.value - ref) / ref * 100.0 : 0.0;
+        return "{\"type\":\"QUOTE\",\"symbol\":\"@" + k + "\",\"price\":" +
+            String.format(Locale.US, "%.2f", b.value) + ",\"changePct\":" +
+            String.format(Locale.US, "%.2f", chg) + ",\"basket\":true,\"ts\":" + b.ts + "}";
+      });
+    }
+  }
+
+  /* ------------------- TICKS ------------------- */
+
+  private void onTick(String symbol, double price, long ts) {
+    List<Member> ms = bySymbol.get(symbol);
+    if (ms == null) return;
+    for (Member m : ms) {
+      synchronized (m.basket) {
+        m.basket.apply(m.index, price, ts);
+      }
+    }
+  }
+
+  /** Σ weight × previous close, recomputed only when the session rolls. */
+  private double reference(Basket b) {
+    ReferencePrices.Refs r0 = refs.get(b.symbols[0]);
+    LocalDate session = r0 == null ? null : r0.session();
+    if (session != null && session.equals(b.refSession)) return b.refValue;
+    double sum = 0;
+    for (int i = 0; i < b.symbols.length; i++) {
+      ReferencePrices.Refs r = refs.get(b.symbols[i]);
+      if (r == null) return 0.0;
+      sum += b.weights[i] * r.prevClose();
+    }
+    b.refSession = session;
+    b.refValue = sum;
+    return sum;
+  }
+
+  /* ------------------- HELPERS ------------------- */
+
+  private TreeMap<String, Double> canonical(Map<String, Double> weights) {
+    if (weights == null || weights.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "weights must list at least one symbol");
+    }
+    TreeMap<String, Double> canon = new TreeMap<>();
+    for (Map.Entry<String, Double> e : weights.entrySet()) {
+      String s = e.getKey() == null ? "" : e.getKey().trim().toUpperCase();
+      Double w = e.getValue();
+      if (s.isEmpty() || s.startsWith("@") || w == null || !Double.isFinite(w) || w == 0) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bad constituent " + e.getKey() + "=" + w);
+      }
+      if (!quotes.isKnown(s)) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown symbol " + s);
+      }
+      canon.merge(s, w, Double::sum);
+    }
+    if (canon.size() > maxConstituents) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + maxConstituents + " constituents");
+    }
+    return canon;
+  }
+
+  private void unref(Basket b) {
+    if (--b.users > 0) return;
+    byKey.remove(b.key);
+    for (String s : b.symbols) {
+      quotes.untrack(s);
+      List<Member> ms = bySymbol.get(s);
+      if (ms == null) continue;
+      ms.removeIf(m -> m.basket == b);
+      if (ms.isEmpty()) bySymbol.remove(s);
+    }
+  }
+
+  private Basket resolve(String user, String name) {
+    Map<String, Basket> mine = byUser.get(user);
+    return mine == null ? null : mine.get(strip(name));
+  }
+
+  private static String strip(String name) {
+    String n = name == null ? "" : name.trim().toUpperCase();
+    return n.startsWith("@") ? n.substring(1) : n;
+  }
+
+  private BasketDto dto(String name, Basket b) {
+    synchronized (b) {
+      Map<String, Double> w = new LinkedHashMap<>();
+      for (int i = 0; i < b.symbols.length; i++) w.put(b.symbols[i], b.weights[i]);
+      boolean ready = b.missing == 0;
+      return new BasketDto(name, "@" + name, w, ready ? Math.round(b.value * 100.0) / 100.0 : null, ready, b.users);
+    }
+  }
+
+  private record Member(Basket basket, int index) {}
+
+  /** One shared computation; guarded by its own monitor. */
+  private static final class Basket {
+    final String key;
+    final String[] symbols;
+    final double[] weights;
+    final double[] last;
+    int missing;
+    double value;
+    long ts;
+    long version;
+    int updates;
+    int users;
+
+    LocalDate refSession;
+    double refValue;
+    long frameVersion = -1;
+    final Map<String, String> frames = new HashMap<>(2);
+
+    Basket(String key, TreeMap<String, Double> canon) {
+      this.key = key;
+      int n = canon.size();
+      symbols = canon.keySet().toArray(new String[0]);
+      weights = new double[n];
+      last = new double[n];
+      int i = 0;
+      for (double w : canon.values()) weights[i++] = w;
+      Arrays.fill(last, Double.NaN);
+      missing = n;
+    }
+
+    void apply(int i, double price, long t) {
+      if (Double.isNaN(last[i])) {
+        missing--;
+        value += weights[i] * price;
+      } else {
+        value += weights[i] * (price - last[i]);
+      }
+      last[i] = price;
+      ts = Math.max(ts, t);
+      version++;
+      if (++updates % RESUM_EVERY == 0 && missing == 0) {
+        double sum = 0;
+        for (int k = 0; k < last.length; k++) sum += weights[k] * last[k];
+        value = sum;
+      }
+    }
+  }
+}
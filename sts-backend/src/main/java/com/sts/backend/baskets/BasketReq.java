@@ -0,0 +1,6 @@
+package com.sts.backend.baskets;
+
+import java.util.Map;
+
+/** PUT /api/baskets/{name} body: {"weights":{"AAPL":1,"MSFT":2}} (units of each constituent). */
+public record BasketReq(Map<String, Double> weights) {}
@@ -0,0 +1,41 @@
+package com.sts.backend.baskets;
+
+import com.sts.backend.common.Accounts;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/baskets")
+public class BasketsController {
+
+  private final BasketHub baskets;
+
+  public BasketsController(BasketHub baskets) {
+    this.baskets = baskets;
+  }
+
+  // GET /api/baskets
+  @GetMapping
+  public List<BasketDto> list(Authentication auth) {
+    return baskets.list(Accounts.of(auth));
+  }
+
+  // PUT /api/baskets/TECH5  {"weights":{"AAPL":1,"MSFT":1}}  → stream as "@TECH5" on /ws/quotes
+  @PutMapping("/{name}")
+  public BasketDto define(@PathVariable String name, @RequestBody BasketReq req, Authentication auth) {
+    return baskets.define(Accounts.of(auth), name, req == null ? null : req.weights());
+  }
+
+  // DELETE /api/baskets/TECH5
+  @DeleteMapping("/{name}")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void delete(@PathVariable String name, Authentication auth) {
+    if (!baskets.delete(Accounts.of(auth), name)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no basket " + name);
+    }
+  }
+}
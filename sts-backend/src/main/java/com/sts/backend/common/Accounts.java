@@ -0,0 +1,23 @@
+package com.sts.backend.common;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * Resolves the trading account for a request.
+ *
+ * The dev controllers are permitAll, so unauthenticated callers share the
+ * "demo" account instead of being rejected.
+ */
+public final class Accounts {
+
+  public static final String DEMO = "demo";
+
+  private Accounts() {}
+
+  public static String of(Authentication auth) {
+    if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(String.valueOf(auth.getPrincipal()))) {
+      return DEMO;
+    }
+    return auth.getName();
+  }
+}
@@ -16,7 +16,7 @@ public class GlobalExceptionHandler {
   @ExceptionHandler(ErrorResponseException.class)
   ResponseEntity<Map<String,Object>> handleKnown(ErrorResponseException ex, HttpServletRequest req) {
     HttpStatus status = (HttpStatus) ex.getStatusCode();
-    return ResponseEntity.status(status).body(Map.of(
+    return ResponseEntity.status(status).headers(ex.getHeaders()).body(Map.of(
         "timestamp", Instant.now().toString(),
         "status", status.value(),
         "error", status.getReasonPhrase(),
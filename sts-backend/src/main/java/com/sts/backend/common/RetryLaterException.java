@@ -0,0 +1,31 @@
+package com.sts.backend.common;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A 429/503 that tells the client when to come back: carries a
+ * {@code Retry-After} header (seconds), which GlobalExceptionHandler copies
+ * onto the response.
+ */
+public class RetryLaterException extends ResponseStatusException {
+
+  private final long retryAfterSeconds;
+
+  public RetryLaterException(HttpStatus status, String reason, long retryAfterSeconds) {
+    super(status, reason);
+    this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+  }
+
+  public long retryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+
+  @Override
+  public HttpHeaders getHeaders() {
+    HttpHeaders h = new HttpHeaders();
+    h.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    return h;
+  }
+}
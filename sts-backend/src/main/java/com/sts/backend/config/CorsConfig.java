@@ -24,8 +24,9 @@ public class CorsConfig {
                 HttpMethod.PUT.name(), HttpMethod.DELETE.name(),
                 HttpMethod.OPTIONS.name(), HttpMethod.PATCH.name()
         ));
-        cfg.setAllowedHeaders(List.of("Authorization","Content-Type","Accept","X-Requested-With","Origin"));
-        cfg.setExposedHeaders(List.of("Authorization","Content-Disposition"));
+        cfg.setAllowedHeaders(List.of("Authorization","Content-Type","Accept","X-Requested-With","Origin","Idempotency-Key"));
+        cfg.setExposedHeaders(List.of("Authorization","Content-Disposition",
+                "Retry-After","RateLimit-Limit","RateLimit-Remaining","RateLimit-Reset","X-Next-Cursor"));
         cfg.setAllowCredentials(false); // using Bearer tokens, not cookies
         cfg.setMaxAge(3600L);
 
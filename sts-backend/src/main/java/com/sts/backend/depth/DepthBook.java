@@ -0,0 +1,207 @@
+package com.sts.backend.depth;
+
+import com.sts.backend.orders.PaperFillSimulator;
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DepthBook — top-N price levels per symbol for the DEPTH channel.
+ *
+ * The quote feed carries no book, so each level is the sum of resting paper
+ * LIMIT orders at that price and, when enabled, synthetic market-maker
+ * liquidity on a fixed price grid around the last quote (sizes persist per
+ * level and a few of them change every tick).
+ *
+ * {@link #step} rebuilds a symbol's top N once per tick and diffs it against
+ * the previously published ladder: only levels whose size changed (0 =
+ * removed) go out, under a per-symbol sequence number that only moves when
+ * something changed. Books are kept only for symbols with subscribers.
+ */
+@Component
+public class DepthBook {
+
+  private static final double TICKS = 10_000.0;
+
+  /** A frame at a sequence; for {@link #step}, {@code frame} is null when nothing changed. */
+  public record Step(long seq, String frame) {}
+
+  private final QuoteBook quotes;
+  private final PaperFillSimulator venue;
+  private final int levels;
+  private final long gridTicks;
+  private final boolean synthetic;
+  private final Map<String, Book> books = new ConcurrentHashMap<>();
+
+  public DepthBook(
+      QuoteBook quotes,
+      PaperFillSimulator venue,
+      @Value("${depth.levels:10}") int levels,
+      @Value("${depth.tick-size:0.05}") double tickSize,
+      @Value("${depth.synthetic:true}") boolean synthetic
+  ) {
+    this.quotes = quotes;
+    this.venue = venue;
+    this.levels = Math.max(1, Math.min(levels, 50));
+    this.gridTicks = Math.max(1, Math.round(tickSize * TICKS));
+    this.synthetic = synthetic;
+  }
+
+  public synchronized void acquire(String symbol) {
+    books.computeIfAbsent(symbol, k -> new Book(k.hashCode())).refs++;
+  }
+
+  public synchronized void release(String symbol) {
+    Book b = books.get(symbol);
+    if (b != null && --b.refs <= 0) books.remove(symbol);
+  }
+
+  /** Advance the symbol's ladder to the current quote; call once per tick. */
+  public Step step(String symbol, long ts) {
+    Book b = books.get(symbol);
+    if (b == null) return new Step(0, null);
+    synchronized (b) {
+      Ladder next = build(symbol, b);
+      if (next == null) return new Step(b.seq, null);
+      StringBuilder bids = new StringBuilder(), asks = new StringBuilder();
+      int changes = diff(b.published.bidPx, b.published.bidSz, next.bidPx, next.bidSz, bids)
+          + diff(b.published.askPx, b.published.askSz, next.askPx, next.askSz, asks);
+      b.published = next;
+      if (changes == 0) return new Step(b.seq, null);
+      long prev = b.seq++;
+      b.snapshotFrame = null;
+      String frame = "{\"type\":\"DEPTH\",\"symbol\":\"" + symbol + "\",\"seq\":" + b.seq +
+          ",\"prevSeq\":" + prev + ",\"bids\":[" + bids + "],\"asks\":[" + asks + "],\"ts\":" + ts + "}";
+      return new Step(b.seq, frame);
+    }
+  }
+
+  /** Full published ladder and its sequence (frame cached until the next change). */
+  public Step snapshot(String symbol) {
+    Book b = books.get(symbol);
+    if (b == null) return null;
+    synchronized (b) {
+      if (b.snapshotFrame == null) {
+        Ladder l = b.published;
+        StringBuilder sb = new StringBuilder(64 + 40 * levels);
+        sb.append("{\"type\":\"DEPTH\",\"symbol\":\"").append(symbol)
+            .append("\",\"snapshot\":true,\"seq\":").append(b.seq).append(",\"bids\":[");
+        levels(l.bidPx, l.bidSz, sb);
+        sb.append("],\"asks\":[");
+        levels(l.askPx, l.askSz, sb);
+        sb.append("]}");
+        b.snapshotFrame = sb.toString();
+      }
+      return new Step(b.seq, b.snapshotFrame);
+    }
+  }
+
+  /* ------------------- BUILD / DIFF ------------------- */
+
+  private Ladder build(String symbol, Book b) {
+    double last = quotes.last(symbol);
+    TreeMap<Long, Long> bids = new TreeMap<>(Comparator.reverseOrder());
+    TreeMap<Long, Long> asks = new TreeMap<>();
+
+    if (synthetic && !Double.isNaN(last)) {
+      long px = Math.round(last * TICKS);
+      long bestBid = Math.floorDiv(px - 1, gridTicks) * gridTicks;
+      long bestAsk = bestBid + gridTicks;
+      Map<Long, Long> mm = new HashMap<>(levels * 4);
+      for (int i = 0; i < levels; i++) {
+        long bp = bestBid - i * gridTicks, ap = bestAsk + i * gridTicks;
+        mm.put(bp, b.mmSizes.getOrDefault(bp, 100L * (1 + b.rnd.nextInt(50))));
+        mm.put(ap, b.mmSizes.getOrDefault(ap, 100L * (1 + b.rnd.nextInt(50))));
+        bids.put(bp, mm.get(bp));
+        asks.put(ap, mm.get(ap));
+      }
+      // a couple of levels refresh their size each tick
+      for (int k = 0; k < 2; k++) {
+        long key = (b.rnd.nextBoolean() ? bestBid - b.rnd.nextInt(levels) * gridTicks
+                                        : bestAsk + b.rnd.nextInt(levels) * gridTicks);
+        long size = 100L * (1 + b.rnd.nextInt(50));
+        mm.put(key, size);
+        if (key <= bestBid) bids.put(key, size);
+        else asks.put(key, size);
+      }
+      b.mmSizes = mm;   // levels that left the window are forgotten
+    }
+
+    venue.restingLevels(symbol, levels, (buy, priceTicks, qty) ->
+        (buy ? bids : asks).merge(priceTicks, qty, Long::sum));
+
+    if (bids.isEmpty() && asks.isEmpty() && b.published.bidPx.length == 0 && b.published.askPx.length == 0) {
+      return null;
+    }
+    return new Ladder(bids, asks, levels);
+  }
+
+  /** Appends {@code [price,size]} for every level that differs; both inputs best-first. */
+  private static int diff(long[] oldPx, long[] oldSz, long[] newPx, long[] newSz, StringBuilder out) {
+    Map<Long, Long> before = new HashMap<>(oldPx.length * 2);
+    for (int i = 0; i < oldPx.length; i++) before.put(oldPx[i], oldSz[i]);
+    int n = 0;
+    for (int i = 0; i < newPx.length; i++) {
+      Long was = before.remove(newPx[i]);
+      if (was != null && was == newSz[i]) continue;
+      n = level(out, n, newPx[i], newSz[i]);
+    }
+    for (Map.Entry<Long, Long> gone : before.entrySet()) n = level(out, n, gone.getKey(), 0);
+    return n;
+  }
+
+  private static int level(StringBuilder out, int n, long px, long size) {
+    if (n > 0) out.append(',');
+    out.append('[').append(String.format(Locale.US, "%.4f", px / TICKS)).append(',').append(size).append(']');
+    return n + 1;
+  }
+
+  private static void levels(long[] px, long[] sz, StringBuilder out) {
+    for (int i = 0; i < px.length; i++) level(out, i, px[i], sz[i]);
+  }
+
+  /* ------------------- STATE ------------------- */
+
+  /** Top-N levels, best first, as parallel primitive arrays. */
+  private static final class Ladder {
+    static final Ladder EMPTY = new Ladder(new TreeMap<>(), new TreeMap<>(), 0);
+
+    final long[] bidPx, bidSz, askPx, askSz;
+
+    Ladder(NavigableMap<Long, Long> bids, NavigableMap<Long, Long> asks, int n) {
+      int nb = Math.min(n, bids.size()), na = Math.min(n, asks.size());
+      bidPx = new long[nb];
+      bidSz = new long[nb];
+      askPx = new long[na];
+      askSz = new long[na];
+      int i = 0;
+      for (Map.Entry<Long, Long> e : bids.entrySet()) {
+        if (i == nb) break;
+        bidPx[i] = e.getKey();
+        bidSz[i++] = e.getValue();
+      }
+      i = 0;
+      for (Map.Entry<Long, Long> e : asks.entrySet()) {
+        if (i == na) break;
+        askPx[i] = e.getKey();
+        askSz[i++] = e.getValue();
+      }
+    }
+  }
+
+  private static final class Book {
+    int refs;
+    long seq;
+    Ladder published = Ladder.EMPTY;
+    String snapshotFrame;
+    Map<Long, Long> mmSizes = new HashMap<>();
+    final SplittableRandom rnd;
+
+    Book(long seed) {
+      rnd = new SplittableRandom(seed);
+    }
+  }
+}
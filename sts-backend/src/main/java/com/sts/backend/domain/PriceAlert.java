@@ -0,0 +1,59 @@
+package com.sts.backend.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * PriceAlert Entity — a user's "price crosses X" or "changePct beyond Y"
+ * alert. ACTIVE rows are loaded into the in-memory index at startup;
+ * firing stamps the price and time and flips the status.
+ */
+
+@Entity
+@Table(name = "price_alerts", indexes = {
+    @Index(name = "idx_price_alerts_status", columnList = "status"),
+    @Index(name = "idx_price_alerts_username", columnList = "username")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceAlert {
+
+    public enum Kind { ABOVE, BELOW, CHANGE_ABOVE, CHANGE_BELOW }
+
+    public enum Status { ACTIVE, FIRED, CANCELED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String username;
+
+    @Column(nullable = false, length = 16)
+    private String symbol;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind kind;
+
+    /** Price for ABOVE/BELOW, percent vs previous close for CHANGE_*. */
+    @Column(nullable = false)
+    private double threshold;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @Builder.Default
+    private Status status = Status.ACTIVE;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant firedAt;
+
+    private Double firedPrice;
+}
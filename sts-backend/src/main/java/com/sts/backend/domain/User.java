@@ -1,5 +1,7 @@
 package com.sts.backend.domain;
 
+import com.sts.backend.security.TokenSubject;
+import com.sts.backend.user.UserChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
@@ -21,12 +23,13 @@ import java.util.*;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class User implements UserDetails {
+public class User implements UserDetails, TokenSubject {
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -56,4 +59,9 @@ public class User implements UserDetails {
     @Override public boolean isAccountNonLocked()      { return true; }
     @Override public boolean isCredentialsNonExpired() { return true; }
     @Override public boolean isEnabled()               { return true; }
+
+    // === TokenSubject Implementation ===
+    @Override public String tokenSubject()      { return username; }
+    @Override public String tokenUserId()       { return id == null ? null : id.toString(); }
+    @Override public List<String> tokenRoles()  { return role == null ? List.of() : List.of(role.name()); }
 }
@@ -0,0 +1,61 @@
+package com.sts.backend.indicators;
+
+/** Bollinger bands: SMA(n) ± k population standard deviations over the same window. */
+final class Bollinger implements Indicator {
+
+  private final double[] window;
+  private final double k;
+  private int head;
+  private int count;
+  private double sum;
+  private double sumSq;
+
+  Bollinger(int n, double k) {
+    this.window = new double[n];
+    this.k = k;
+  }
+
+  @Override
+  public void update(double price) {
+    if (count == window.length) {
+      double old = window[head];
+      sum -= old;
+      sumSq -= old * old;
+    } else {
+      count++;
+    }
+    window[head] = price;
+    sum += price;
+    sumSq += price * price;
+    if (++head == window.length) {
+      head = 0;
+      sum = 0;                      // re-sum once per wrap so rounding can't drift
+      sumSq = 0;
+      for (double v : window) {
+        sum += v;
+        sumSq += v * v;
+      }
+    }
+  }
+
+  @Override
+  public boolean ready() {
+    return count == window.length;
+  }
+
+  @Override
+  public void writeJson(StringBuilder sb) {
+    double mid = Double.NaN, up = Double.NaN, lo = Double.NaN;
+    if (ready()) {
+      mid = sum / count;
+      double sd = Math.sqrt(Math.max(0, sumSq / count - mid * mid));
+      up = mid + k * sd;
+      lo = mid - k * sd;
+    }
+    Indicator.field(sb, "middle", mid);
+    sb.append(',');
+    Indicator.field(sb, "upper", up);
+    sb.append(',');
+    Indicator.field(sb, "lower", lo);
+  }
+}
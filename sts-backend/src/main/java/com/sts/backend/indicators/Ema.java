@@ -0,0 +1,34 @@
+package com.sts.backend.indicators;
+
+/** Exponential moving average, alpha = 2 / (n + 1), seeded with the SMA of the first n prices. */
+final class Ema implements Indicator {
+
+  private final int n;
+  private final double alpha;
+  private int count;
+  private double value;
+
+  Ema(int n) {
+    this.n = n;
+    this.alpha = 2.0 / (n + 1);
+  }
+
+  @Override
+  public void update(double price) {
+    if (count < n) {
+      value += (price - value) / ++count;   // running mean while warming up
+    } else {
+      value += alpha * (price - value);
+    }
+  }
+
+  @Override
+  public boolean ready() {
+    return count >= n;
+  }
+
+  @Override
+  public void writeJson(StringBuilder sb) {
+    Indicator.field(sb, "value", ready() ? value : Double.NaN);
+  }
+}
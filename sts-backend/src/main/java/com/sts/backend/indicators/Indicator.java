@@ -0,0 +1,64 @@
+package com.sts.backend.indicators;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Indicator — an incremental calculator fed one price per tick.
+ *
+ * Implementations keep a fixed-size primitive window and update in O(1);
+ * {@link #writeJson} appends the current value fields to a frame.
+ */
+public interface Indicator {
+
+  void update(double price);
+
+  /** Called on the first tick of a new trading session. */
+  default void onSession() {}
+
+  /** False until the window has filled. */
+  boolean ready();
+
+  /** Appends {@code "field":value} pairs, without a leading comma. */
+  void writeJson(StringBuilder sb);
+
+  Pattern SPEC = Pattern.compile("(SMA|EMA|RSI|BB|VWAP)(\\d{0,3})");
+  int MAX_PERIOD = 500;
+
+  /**
+   * Canonical name for a client spec such as {@code ema20} or {@code RSI}
+   * (default periods: SMA/EMA/BB 20, RSI 14), or {@code null} if invalid.
+   */
+  static String canonical(String spec) {
+    if (spec == null) return null;
+    Matcher m = SPEC.matcher(spec.trim().toUpperCase(Locale.ROOT));
+    if (!m.matches()) return null;
+    String kind = m.group(1);
+    if (kind.equals("VWAP")) return m.group(2).isEmpty() ? "VWAP" : null;
+    int n = m.group(2).isEmpty() ? (kind.equals("RSI") ? 14 : 20) : Integer.parseInt(m.group(2));
+    if (n < 2 || n > MAX_PERIOD) return null;
+    return kind + n;
+  }
+
+  /** New instance for a canonical name. */
+  static Indicator create(String name) {
+    if (name.equals("VWAP")) return new Vwap();
+    Matcher m = SPEC.matcher(name);
+    if (!m.matches()) throw new IllegalArgumentException(name);
+    int n = Integer.parseInt(m.group(2));
+    return switch (m.group(1)) {
+      case "SMA" -> new Sma(n);
+      case "EMA" -> new Ema(n);
+      case "RSI" -> new Rsi(n);
+      case "BB" -> new Bollinger(n, 2.0);
+      default -> throw new IllegalArgumentException(name);
+    };
+  }
+
+  static void field(StringBuilder sb, String name, double v) {
+    sb.append('"').append(name).append("\":");
+    if (Double.isNaN(v)) sb.append("null");
+    else sb.append(String.format(Locale.US, "%.4f", v));
+  }
+}
@@ -0,0 +1,110 @@
+package com.sts.backend.indicators;
+
+import com.sts.backend.quotes.QuoteBook;
+import com.sts.backend.quotes.ReferencePrices;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * IndicatorHub — one instance of each subscribed indicator per symbol,
+ * shared by every client that asked for it.
+ *
+ * Instances are reference-counted by (symbol, name) and created on first
+ * subscription. Each tick updates the symbol's instances once and renders
+ * their INDICATOR frames once; the streamer then hands the same string to
+ * every subscriber.
+ */
+@Component
+public class IndicatorHub {
+
+  private final ReferencePrices refs;
+  private final Map<String, Channels> bySymbol = new ConcurrentHashMap<>();
+
+  public IndicatorHub(QuoteBook quotes, ReferencePrices refs) {
+    this.refs = refs;
+    quotes.addListener(this::onTick);
+  }
+
+  public synchronized void acquire(String symbol, String name) {
+    Channels c = bySymbol.computeIfAbsent(symbol, k -> new Channels(session(k)));
+    synchronized (c) {
+      Entry e = c.entries.get(name);
+      if (e == null) c.entries.put(name, e = new Entry(Indicator.create(name)));
+      e.refs++;
+    }
+  }
+
+  public synchronized void release(String symbol, String name) {
+    Channels c = bySymbol.get(symbol);
+    if (c == null) return;
+    synchronized (c) {
+      Entry e = c.entries.get(name);
+      if (e != null && --e.refs <= 0) c.entries.remove(name);
+      if (c.entries.isEmpty()) bySymbol.remove(symbol);
+    }
+  }
+
+  /** Latest INDICATOR frame for (symbol, name), or {@code null} before its first tick. */
+  public String frame(String symbol, String name) {
+    Channels c = bySymbol.get(symbol);
+    if (c == null) return null;
+    Entry e = c.entries.get(name);
+    return e == null ? null : e.frame;
+  }
+
+  /** Number of live indicator instances across all symbols. */
+  public int instances() {
+    int n = 0;
+    for (Channels c : bySymbol.values()) n += c.entries.size();
+    return n;
+  }
+
+  private void onTick(String symbol, double price, long ts) {
+    Channels c = bySymbol.get(symbol);
+    if (c == null) return;
+    synchronized (c) {
+      LocalDate s = session(symbol);
+      boolean newSession = s != null && !s.equals(c.session);
+      c.session = s;
+      for (Map.Entry<String, Entry> me : c.entries.entrySet()) {
+        Entry e = me.getValue();
+        if (newSession) e.indicator.onSession();
+        e.indicator.update(price);
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"type\":\"INDICATOR\",\"symbol\":\"").append(symbol)
+            .append("\",\"name\":\"").append(me.getKey()).append("\",");
+        e.indicator.writeJson(sb);
+        sb.append(",\"ready\":").append(e.indicator.ready())
+            .append(",\"ts\":").append(ts).append('}');
+        e.frame = sb.toString();
+      }
+    }
+  }
+
+  private LocalDate session(String symbol) {
+    ReferencePrices.Refs r = refs.get(symbol);
+    return r == null ? null : r.session();
+  }
+
+  private static final class Channels {
+    final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    LocalDate session;
+
+    Channels(LocalDate session) {
+      this.session = session;
+    }
+  }
+
+  private static final class Entry {
+    final Indicator indicator;
+    int refs;
+    volatile String frame;
+
+    Entry(Indicator indicator) {
+      this.indicator = indicator;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.sts.backend.indicators;
+
+/** Wilder's RSI: average gain / loss over n changes, smoothed by (n − 1) / n. */
+final class Rsi implements Indicator {
+
+  private final int n;
+  private int changes;
+  private double prev = Double.NaN;
+  private double avgGain;
+  private double avgLoss;
+
+  Rsi(int n) {
+    this.n = n;
+  }
+
+  @Override
+  public void update(double price) {
+    if (Double.isNaN(prev)) {
+      prev = price;
+      return;
+    }
+    double d = price - prev;
+    prev = price;
+    double gain = Math.max(d, 0), loss = Math.max(-d, 0);
+    if (changes < n) {
+      changes++;
+      avgGain += (gain - avgGain) / changes;
+      avgLoss += (loss - avgLoss) / changes;
+    } else {
+      avgGain = (avgGain * (n - 1) + gain) / n;
+      avgLoss = (avgLoss * (n - 1) + loss) / n;
+    }
+  }
+
+  @Override
+  public boolean ready() {
+    return changes >= n;
+  }
+
+  @Override
+  public void writeJson(StringBuilder sb) {
+    double v = Double.NaN;
+    if (ready()) v = avgLoss == 0 ? (avgGain == 0 ? 50.0 : 100.0) : 100.0 - 100.0 / (1.0 + avgGain / avgLoss);
+    Indicator.field(sb, "value", v);
+  }
+}
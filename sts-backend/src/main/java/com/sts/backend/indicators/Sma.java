@@ -0,0 +1,41 @@
+package com.sts.backend.indicators;
+
+/** Simple moving average over the last {@code n} prices (ring + running sum). */
+final class Sma implements Indicator {
+
+  private final double[] window;
+  private int head;
+  private int count;
+  private double sum;
+
+  Sma(int n) {
+    window = new double[n];
+  }
+
+  @Override
+  public void update(double price) {
+    if (count == window.length) sum -= window[head];
+    else count++;
+    window[head] = price;
+    sum += price;
+    if (++head == window.length) {
+      head = 0;
+      sum = 0;                      // re-sum once per wrap so rounding can't drift
+      for (double v : window) sum += v;
+    }
+  }
+
+  @Override
+  public boolean ready() {
+    return count == window.length;
+  }
+
+  double value() {
+    return ready() ? sum / count : Double.NaN;
+  }
+
+  @Override
+  public void writeJson(StringBuilder sb) {
+    Indicator.field(sb, "value", value());
+  }
+}
@@ -0,0 +1,34 @@
+package com.sts.backend.indicators;
+
+/**
+ * Session VWAP. The quote stream carries no traded volume, so every tick
+ * counts as one unit and this is the session's time-weighted mean price;
+ * it resets at each session open.
+ */
+final class Vwap implements Indicator {
+
+  private double pv;
+  private double volume;
+
+  @Override
+  public void update(double price) {
+    pv += price;
+    volume += 1;
+  }
+
+  @Override
+  public void onSession() {
+    pv = 0;
+    volume = 0;
+  }
+
+  @Override
+  public boolean ready() {
+    return volume > 0;
+  }
+
+  @Override
+  public void writeJson(StringBuilder sb) {
+    Indicator.field(sb, "value", ready() ? pv / volume : Double.NaN);
+  }
+}
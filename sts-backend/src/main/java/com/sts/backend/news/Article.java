@@ -0,0 +1,4 @@
+package com.sts.backend.news;
+
+/** One headline as a provider returns it; {@code publishedAt} in epoch ms. */
+public record Article(String url, String title, String source, long publishedAt) {}
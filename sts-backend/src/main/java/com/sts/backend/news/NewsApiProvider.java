@@ -0,0 +1,76 @@
+package com.sts.backend.news;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/** newsapi.org "everything" search, newest first, with connect and read timeouts. */
+public class NewsApiProvider implements NewsProvider {
+
+  private final RestTemplate http;
+  private final String apiKey;
+  private final int pageSize;
+
+  public NewsApiProvider(String apiKey, int pageSize, int connectTimeoutMs, int readTimeoutMs) {
+    SimpleClientHttpRequestFactory f = new SimpleClientHttpRequestFactory();
+    f.setConnectTimeout(connectTimeoutMs);
+    f.setReadTimeout(readTimeoutMs);
+    this.http = new RestTemplate(f);
+    this.apiKey = apiKey;
+    this.pageSize = pageSize;
+  }
+
+  @Override
+  public String name() {
+    return "newsapi";
+  }
+
+  @Override
+  public List<Article> fetch(String query) {
+    List<Article> out = new ArrayList<>();
+    try {
+      String url = UriComponentsBuilder.fromHttpUrl("https://newsapi.org/v2/everything")
+          .queryParam("q", query.equals("MARKET") ? "markets" : query)
+          .queryParam("language", "en")
+          .queryParam("pageSize", pageSize)
+          .queryParam("sortBy", "publishedAt")
+          .queryParam("apiKey", apiKey)
+          .encode().toUriString();
+      ResponseEntity<Map> r = http.getForEntity(url, Map.class);
+      Object arts = r.getBody() == null ? null : r.getBody().get("articles");
+      if (arts instanceof List<?> list) {
+        for (Object o : list) {
+          if (o instanceof Map<?,?> mm) {
+            String title = Objects.toString(mm.get("title"), null);
+            String link = Objects.toString(mm.get("url"), null);
+            if (title == null || title.isBlank() || link == null) continue;
+            String src = "News";
+            if (mm.get("source") instanceof Map<?,?> sm) {
+              src = Objects.toString(sm.get("name"), "News");
+            }
+            out.add(new Article(link, title, src, publishedAt(mm.get("publishedAt"))));
+          }
+        }
+      }
+    } catch (Exception e) {
+      System.err.println("[news] newsapi failed for " + query + ": " + e.getMessage());
+    }
+    return out;
+  }
+
+  private static long publishedAt(Object v) {
+    if (v != null) {
+      try {
+        return Instant.parse(v.toString()).toEpochMilli();
+      } catch (Exception ignored) {}
+    }
+    return System.currentTimeMillis();
+  }
+}
@@ -1,20 +1,37 @@
 package com.sts.backend.news;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
 
+/**
+ * GET /api/news?symbol=&q=&before=&limit= — newest first; when more pages
+ * exist the cursor for the next one is in the X-Next-Cursor header.
+ */
 @RestController
 public class NewsController {
   private final NewsService svc;
   public NewsController(NewsService svc) { this.svc = svc; }
 
   @GetMapping("/api/news")
-  public List<Map<String,Object>> news(@RequestParam(name = "symbol", required = false) String symbol) {
-    return svc.fetch(symbol);
+  public ResponseEntity<List<Map<String,Object>>> news(@RequestParam(name = "symbol", required = false) String symbol,
+                                                       @RequestParam(name = "q", required = false) String q,
+                                                       @RequestParam(name = "before", required = false) String before,
+                                                       @RequestParam(name = "limit", defaultValue = "20") int limit) {
+    NewsIndex.Page page;
+    try {
+      page = svc.search(symbol, q, before, limit);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+    ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+    if (page.nextCursor() != null) ok.header("X-Next-Cursor", page.nextCursor());
+    return ok.body(page.items().stream().map(NewsService::toJson).toList());
   }
 }
-
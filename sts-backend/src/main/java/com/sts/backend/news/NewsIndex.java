@@ -0,0 +1,260 @@
+package com.sts.backend.news;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * NewsIndex — ingested articles, deduplicated, with an inverted index from
+ * ticker mentions ("$AAPL") and title terms to articles.
+ *
+ * An article is the same as one already held when its URL or the hash of
+ * its normalized title matches; the duplicate only adds its tickers to the
+ * existing article. Tickers are the symbol the article was pulled for plus
+ * cashtags and known tickers appearing in the title.
+ *
+ * Every posting list is a skip list ordered newest first (publish time,
+ * then ingestion id), so a query walks the shortest list of its terms from
+ * the cursor and filters on the others — no scans of the whole store.
+ * Lists keep their own length, since a skip list's size() is a walk.
+ * Articles older than max-age, or beyond max-articles, are evicted oldest
+ * first on each ingest. Writers are serialized; readers take no locks.
+ */
+@Component
+public class NewsIndex {
+
+  /** One article as returned by {@link #search}. */
+  public record Hit(long id, String url, String title, String source, long publishedAt, List<String> symbols) {}
+
+  /** A page of hits; {@code nextCursor} is {@code null} on the last page. */
+  public record Page(List<Hit> items, String nextCursor) {}
+
+  private static final Comparator<Doc> NEWEST_FIRST =
+      Comparator.comparingLong((Doc d) -> -d.publishedAt).thenComparingLong(d -> -d.id);
+
+  private static final Set<String> STOP = Set.of(
+      "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is", "it", "its",
+      "of", "on", "or", "the", "to", "was", "what", "with", "after", "ahead", "into", "over", "new");
+
+  private final long maxAgeMs;
+  private final int maxArticles;
+
+  private final ConcurrentSkipListSet<Doc> all = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+  private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+  private volatile int count;   // of all; written under this
+  // dedup keys; guarded by this
+  private final Map<String, Doc> byUrl = new HashMap<>();
+  private final Map<Long, Doc> byTitle = new HashMap<>();
+  private long nextId;
+
+  public NewsIndex(
+      @Value("${news.index.max-age-ms:172800000}") long maxAgeMs,
+      @Value("${news.index.max-articles:20000}") int maxArticles
+  ) {
+    this.maxAgeMs = maxAgeMs;
+    this.maxArticles = Math.max(100, maxArticles);
+  }
+
+  /**
+   * Adds a provider batch pulled for {@code symbol} ("MARKET" tags no
+   * ticker). {@code tickers} are the symbols worth recognizing in titles.
+   *
+   * @return how many articles were new
+   */
+  public synchronized int ingest(String symbol, List<Article> batch, Set<String> tickers) {
+    long cutoff = System.currentTimeMillis() - maxAgeMs;
+    int added = 0;
+    for (Article a : batch) {
+      if (a.publishedAt() < cutoff || a.title() == null || a.title().isBlank()) continue;
+      Set<String> mentions = mentions(symbol, a.title(), tickers);
+
+      String url = a.url() == null || a.url().isBlank() || "#".equals(a.url()) ? null : a.url().trim();
+      long titleHash = titleHash(a.title());
+      Doc d = url != null ? byUrl.get(url) : null;
+      if (d == null) d = byTitle.get(titleHash);
+      if (d != null) {
+        for (String m : mentions) {
+          if (d.terms.add(m)) post(m, d);
+        }
+        continue;
+      }
+
+      d = new Doc(++nextId, url, a.title().trim(), a.source(), a.publishedAt(), titleHash);
+      d.terms.addAll(mentions);
+      for (String t : tokens(a.title())) d.terms.add(t);
+      for (String t : d.terms) post(t, d);
+      if (all.add(d)) count++;
+      if (url != null) byUrl.put(url, d);
+      byTitle.put(titleHash, d);
+      added++;
+    }
+    evict(cutoff);
+    return added;
+  }
+
+  /**
+   * Newest-first page of articles tagged with {@code symbol} (any when
+   * null) whose titles contain every term of {@code q}, strictly older
+   * than the {@code before} cursor.
+   *
+   * @throws IllegalArgumentException for a malformed cursor
+   */
+  public Page search(String symbol, String q, String before, int limit) {
+    List<String> terms = new ArrayList<>();
+    if (symbol != null && !symbol.isBlank() && !"MARKET".equalsIgnoreCase(symbol)) {
+      terms.add("$" + symbol.trim().toUpperCase(Locale.ROOT));
+    }
+    if (q != null) terms.addAll(tokens(q));
+
+    NavigableSet<Doc> source = all;
+    int shortest = Integer.MAX_VALUE;
+    for (String t : terms) {
+      Posting p = postings.get(t);
+      if (p == null) return new Page(List.of(), null);
+      if (p.size < shortest) {
+        shortest = p.size;
+        source = p.docs;
+      }
+    }
+    if (before != null && !before.isBlank()) source = source.tailSet(cursor(before), false);
+
+    long cutoff = System.currentTimeMillis() - maxAgeMs;
+    List<Hit> out = new ArrayList<>(limit);
+    Doc last = null;
+    for (Doc d : source) {
+      if (d.publishedAt < cutoff) break;
+      if (!d.terms.containsAll(terms)) continue;
+      if (out.size() == limit) {
+        return new Page(out, last.publishedAt + "-" + last.id);
+      }
+      out.add(d.hit());
+      last = d;
+    }
+    return new Page(out, null);
+  }
+
+  public int size() {
+    return count;
+  }
+
+  /* ------------------- INTERNALS ------------------- */
+
+  private void post(String term, Doc d) {
+    Posting p = postings.computeIfAbsent(term, k -> new Posting());
+    if (p.docs.add(d)) p.size++;
+  }
+
+  private void evict(long cutoff) {
+    Doc oldest;
+    while ((oldest = all.isEmpty() ? null : all.last()) != null
+        && (oldest.publishedAt < cutoff || count > maxArticles)) {
+      if (all.remove(oldest)) count--;
+      for (String t : oldest.terms) {
+        Posting p = postings.get(t);
+        if (p != null && p.docs.remove(oldest) && --p.size == 0) postings.remove(t);
+      }
+      if (oldest.url != null) byUrl.remove(oldest.url, oldest);
+      byTitle.remove(oldest.titleHash, oldest);
+    }
+  }
+
+  private static Doc cursor(String before) {
+    int dash = before.lastIndexOf('-');
+    try {
+      long ts = Long.parseLong(dash > 0 ? before.substring(0, dash) : before);
+      long id = dash > 0 ? Long.parseLong(before.substring(dash + 1)) : 0;   // bare ms: after every article at it
+      return new Doc(id, null, null, null, ts, 0);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Bad cursor: " + before);
+    }
+  }
+
+  /** "$TICKER" tags: the pulled symbol, cashtags, and known tickers written in capitals. */
+  private static Set<String> mentions(String symbol, String title, Set<String> tickers) {
+    Set<String> out = new HashSet<>(4);
+    if (symbol != null && !"MARKET".equals(symbol)) out.add("$" + symbol);
+    int n = title.length();
+    for (int i = 0; i < n; ) {
+      if (!Character.isLetterOrDigit(title.charAt(i)) && title.charAt(i) != '$') {
+        i++;
+        continue;
+      }
+      int j = i + 1;
+      while (j < n && (Character.isLetterOrDigit(title.charAt(j)) || title.charAt(j) == '.')) j++;
+      int end = j;
+      while (end > i + 1 && title.charAt(end - 1) == '.') end--;   // sentence end, not "BRK.B"
+      String word = title.substring(i, end);
+      if (word.length() > 1 && word.charAt(0) == '$') {
+        out.add("$" + word.substring(1).toUpperCase(Locale.ROOT));
+      } else if (tickers.contains(word)) {
+        out.add("$" + word);   // only an exact-case match: "META" is a ticker, "meta" is a word
+      }
+      i = j;
+    }
+    return out;
+  }
+
+  /** Lower-cased alphanumeric title terms without stop words. */
+  static List<String> tokens(String text) {
+    List<String> out = new ArrayList<>();
+    StringBuilder w = new StringBuilder();
+    for (int i = 0, n = text.length(); i <= n; i++) {
+      char c = i < n ? text.charAt(i) : ' ';
+      if (Character.isLetterOrDigit(c)) {
+        w.append(Character.toLowerCase(c));
+      } else if (w.length() > 0) {
+        String t = w.toString();
+        if (t.length() > 1 && !STOP.contains(t) && !out.contains(t)) out.add(t);
+        w.setLength(0);
+      }
+    }
+    return out;
+  }
+
+  /** 64-bit FNV-1a of the title's lower-cased letters and digits only. */
+  private static long titleHash(String title) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0, n = title.length(); i < n; i++) {
+      char c = title.charAt(i);
+      if (!Character.isLetterOrDigit(c)) continue;
+      h ^= Character.toLowerCase(c);
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /** A term's articles, newest first, with their count; written under the index lock. */
+  private static final class Posting {
+    final ConcurrentSkipListSet<Doc> docs = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+    volatile int size;
+  }
+
+  private static final class Doc {
+    final long id;
+    final String url;
+    final String title;
+    final String source;
+    final long publishedAt;
+    final long titleHash;
+    final Set<String> terms = ConcurrentHashMap.newKeySet();
+
+    Doc(long id, String url, String title, String source, long publishedAt, long titleHash) {
+      this.id = id;
+      this.url = url;
+      this.title = title;
+      this.source = source;
+      this.publishedAt = publishedAt;
+      this.titleHash = titleHash;
+    }
+
+    Hit hit() {
+      List<String> syms = new ArrayList<>(2);
+      for (String t : terms) if (t.startsWith("$")) syms.add(t.substring(1));
+      Collections.sort(syms);
+      return new Hit(id, url, title, source, publishedAt, syms);
+    }
+  }
+}
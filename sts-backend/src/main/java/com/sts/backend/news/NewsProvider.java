@@ -0,0 +1,15 @@
+package com.sts.backend.news;
+
+import java.util.List;
+
+/**
+ * NewsProvider — where ingestion pulls headlines from. {@code query} is a
+ * ticker or "MARKET" for general market news. Implementations return an
+ * empty list rather than throwing when the upstream is unavailable.
+ */
+public interface NewsProvider {
+
+  String name();
+
+  List<Article> fetch(String query);
+}
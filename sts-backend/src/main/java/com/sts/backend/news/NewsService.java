@@ -1,68 +1,149 @@
 package com.sts.backend.news;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
 
+/**
+ * NewsService — ingestion of provider headlines into the {@link NewsIndex}
+ * and the reads behind /api/news.
+ *
+ * Each symbol read ("MARKET" when none) is a tracked key in a bounded
+ * stale-while-revalidate cache of pulls: a key older than refresh-ms is
+ * still served from the index while one background pull for it runs
+ * (Caffeine coalesces concurrent refreshes). Only a key never seen before —
+ * or not read for expire-ms — waits for its first pull, and concurrent
+ * first reads share it. The prewarm symbols are pulled on a schedule, so
+ * their reads never wait on the provider.
+ *
+ * The provider is newsapi.org when news.provider=newsapi and a key is set,
+ * otherwise the offline {@link StubNewsProvider}.
+ */
 @Service
 public class NewsService {
-  private final RestTemplate http = new RestTemplate();
-  private final String apiKey;
 
-  public NewsService(@Value("${news.api.key:}") String apiKey) {
-    this.apiKey = apiKey;
-  }
+  private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9.^=-]{1,15}");
 
-  private static class CacheItem { long ts; List<Map<String,Object>> items; }
-  private final Map<String, CacheItem> cache = new ConcurrentHashMap<>();
+  private final NewsProvider provider;
+  private final NewsIndex index;
+  private final Set<String> prewarm;
+  private final ExecutorService refresher;
+  private final ScheduledExecutorService scheduler;
+  private final LoadingCache<String, Long> pulls;   // key → ms of its last pull
 
-  public List<Map<String,Object>> fetch(String symbol) {
-    String key = symbol == null || symbol.isBlank() ? "MARKET" : symbol.toUpperCase();
-    CacheItem c = cache.get(key);
-    long now = System.currentTimeMillis();
-    if (c != null && (now - c.ts) < 60_000) return c.items;
+  public NewsService(
+      NewsIndex index,
+      @Value("${news.provider:newsapi}") String provider,
+      @Value("${news.api.key:}") String apiKey,
+      @Value("${news.api.page-size:20}") int pageSize,
+      @Value("${news.cache.max-size:500}") long maxSize,
+      @Value("${news.cache.refresh-ms:60000}") long refreshMs,
+      @Value("${news.cache.expire-ms:1800000}") long expireMs,
+      @Value("${news.upstream.connect-timeout-ms:2000}") int connectTimeoutMs,
+      @Value("${news.upstream.read-timeout-ms:3000}") int readTimeoutMs,
+      @Value("${news.prewarm.symbols:MARKET,AAPL,MSFT,NVDA,AMZN,TSLA}") String prewarm
+  ) {
+    this.index = index;
+    boolean live = "newsapi".equalsIgnoreCase(provider) && apiKey != null && !apiKey.isBlank();
+    this.provider = live
+        ? new NewsApiProvider(apiKey, pageSize, connectTimeoutMs, readTimeoutMs)
+        : new StubNewsProvider(6);
+    System.out.println("[news] provider=" + this.provider.name());
 
-    List<Map<String,Object>> out = new ArrayList<>();
-    if (apiKey != null && !apiKey.isBlank()) {
-      try {
-        String q = key.equals("MARKET") ? "markets" : key;
-        String url = "https://newsapi.org/v2/everything?q=" + q + "&language=en&pageSize=8&sortBy=publishedAt&apiKey=" + apiKey;
-        ResponseEntity<Map> r = http.getForEntity(url, Map.class);
-        Object arts = r.getBody() == null ? null : r.getBody().get("articles");
-        if (arts instanceof List<?> list) {
-          for (Object o : list) {
-            if (o instanceof Map<?,?> mm) {
-              String title = java.util.Objects.toString(mm.get("title"), "Headline");
-              Object srcObj = mm.get("source");
-              String src = "News";
-              if (srcObj instanceof Map<?,?> sm) {
-                src = java.util.Objects.toString(sm.get("name"), "News");
-              }
-              String link = java.util.Objects.toString(mm.get("url"), "#");
-              out.add(Map.of(
-                  "t", title,
-                  "s", src,
-                  "u", link,
-                  "d", Instant.now().toString()
-              ));
-            }
+    this.refresher = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256), r -> {
+      Thread t = new Thread(r, "news-refresh");
+      t.setDaemon(true);
+      return t;
+    }, new ThreadPoolExecutor.AbortPolicy());
+    // a rejected refresh throws back into Caffeine, which clears it so the next stale read retries;
+    // a silently discarded one would leave the key's refresh future pending and the key never refreshed
+    this.pulls = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .refreshAfterWrite(Duration.ofMillis(refreshMs))
+        .expireAfterWrite(Duration.ofMillis(Math.max(expireMs, refreshMs + 1)))
+        .executor(refresher)
+        .build(new CacheLoader<>() {
+          @Override
+          public Long load(String key) {
+            return pull(key);
           }
-        }
-      } catch (Exception ignored) {}
+        });
+
+    this.prewarm = new LinkedHashSet<>();
+    for (String s : prewarm.split(",")) {
+      if (!s.isBlank()) this.prewarm.add(keyOf(s));
+    }
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "news-prewarm");
+      t.setDaemon(true);
+      return t;
+    });
+    if (!this.prewarm.isEmpty()) {
+      scheduler.scheduleWithFixedDelay(this::prewarm, 0, Math.max(1000, refreshMs), TimeUnit.MILLISECONDS);
     }
+  }
+
+  /**
+   * Newest-first headlines for the symbol (all when blank) matching every
+   * term of {@code q}, older than the {@code before} cursor.
+   *
+   * @throws IllegalArgumentException for a malformed symbol or cursor
+   */
+  public NewsIndex.Page search(String symbol, String q, String before, int limit) {
+    String key = keyOf(symbol);
+    if (!SYMBOL.matcher(key).matches()) throw new IllegalArgumentException("Bad symbol: " + symbol);
+    pulls.get(key);
+    return index.search(key, q, before, Math.max(1, Math.min(limit, 100)));
+  }
+
+  /** The wire shape the dashboard reads: t(itle), s(ource), u(rl), d(ate, ISO) plus id and symbols. */
+  public static Map<String,Object> toJson(NewsIndex.Hit h) {
+    return Map.of(
+        "id", h.id(),
+        "t", h.title(),
+        "s", h.source() == null ? "News" : h.source(),
+        "u", h.url() == null ? "#" : h.url(),
+        "d", Instant.ofEpochMilli(h.publishedAt()).toString(),
+        "symbols", h.symbols()
+    );
+  }
+
+  private long pull(String key) {
+    List<Article> batch = provider.fetch(key);
+    Set<String> tickers = new HashSet<>(pulls.asMap().keySet());
+    tickers.addAll(prewarm);
+    tickers.remove("MARKET");
+    index.ingest(key, batch, tickers);
+    return System.currentTimeMillis();
+  }
 
-    if (out.isEmpty()) {
-      out = List.of(
-          Map.of("t", key + " in focus amid rotation", "s", "MockWire", "u", "#", "d", Instant.now().toString()),
-          Map.of("t", "Analyst take on " + key + " valuation", "s", "StreetMock", "u", "#", "d", Instant.now().toString())
-      );
+  private void prewarm() {
+    for (String key : prewarm) {
+      try {
+        if (pulls.getIfPresent(key) == null) pulls.get(key);
+        else pulls.refresh(key);
+      } catch (Exception e) {
+        System.err.println("[news] prewarm failed for " + key + ": " + e.getMessage());
+      }
     }
-    CacheItem ni = new CacheItem(); ni.ts = now; ni.items = out; cache.put(key, ni);
-    return out;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+    refresher.shutdownNow();
+  }
+
+  private static String keyOf(String symbol) {
+    return symbol == null || symbol.isBlank() ? "MARKET" : symbol.trim().toUpperCase(Locale.ROOT);
   }
 }
@@ -0,0 +1,53 @@
+package com.sts.backend.news;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * StubNewsProvider — offline headlines for dev and tests.
+ *
+ * Deterministic per (query, hour): a pull repeated within the hour returns
+ * the same articles (same URLs, published over the hour before it), so
+ * ingestion dedup sees them as known, and the next hour adds new ones. Some headlines mention a second ticker as a
+ * cashtag to exercise cross-symbol tagging.
+ */
+public class StubNewsProvider implements NewsProvider {
+
+  private static final long HOUR = 3_600_000L;
+  private static final String[] PEERS = {"AAPL", "MSFT", "NVDA", "AMZN", "TSLA", "GOOGL", "META"};
+  private static final String[] TEMPLATES = {
+      "%s in focus amid sector rotation",
+      "Analyst take on %s valuation after the rally",
+      "%s shares move as options volume spikes",
+      "What the latest guidance means for %s",
+      "%s and $%s lead tech higher into the close",
+      "Funds trim %s exposure ahead of earnings",
+  };
+
+  private final int perPull;
+
+  public StubNewsProvider(int perPull) {
+    this.perPull = Math.max(1, perPull);
+  }
+
+  @Override
+  public String name() {
+    return "stub";
+  }
+
+  @Override
+  public List<Article> fetch(String query) {
+    long hour = System.currentTimeMillis() / HOUR * HOUR;
+    String subject = query.equals("MARKET") ? "Markets" : query;
+    SplittableRandom rnd = new SplittableRandom(query.hashCode() * 31L + hour);
+    List<Article> out = new ArrayList<>(perPull);
+    for (int i = 0; i < perPull; i++) {
+      String peer = PEERS[rnd.nextInt(PEERS.length)];
+      String title = String.format(TEMPLATES[rnd.nextInt(TEMPLATES.length)], subject, peer);
+      String url = "https://news.invalid/" + query.toLowerCase() + "/" + hour + "/" + i;
+      out.add(new Article(url, title, i % 2 == 0 ? "MockWire" : "StreetMock", hour - (long) i * HOUR / perPull));
+    }
+    return out;
+  }
+}
@@ -0,0 +1,6 @@
+package com.sts.backend.orders;
+
+import java.util.List;
+
+/** Body of POST /api/orders/batch; {@code atomic} defaults to false (per-item acceptance). */
+public record BatchOrderReq(List<CreateOrderReq> orders, Boolean atomic) {}
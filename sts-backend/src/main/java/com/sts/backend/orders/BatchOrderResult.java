@@ -0,0 +1,9 @@
+package com.sts.backend.orders;
+
+import java.util.List;
+
+public record BatchOrderResult(int accepted, int rejected, List<Item> results) {
+
+  /** One entry per submitted order, in request order; {@code order} is null when rejected. */
+  public record Item(int index, OrderDto order, String reason, String message) {}
+}
@@ -0,0 +1,17 @@
+package com.sts.backend.orders;
+
+import java.math.BigDecimal;
+
+public record CreateOrderReq(String symbol, String side, String type, int qty, BigDecimal limitPrice,
+                             BigDecimal stopPrice, BigDecimal trailAmount, String clientOrderId) {
+
+  /** Trimmed, upper-cased copy; a missing type defaults to MARKET. */
+  public CreateOrderReq normalized() {
+    return new CreateOrderReq(upper(symbol), upper(side), type == null ? "MARKET" : upper(type), qty, limitPrice,
+        stopPrice, trailAmount, clientOrderId == null || clientOrderId.isBlank() ? null : clientOrderId.trim());
+  }
+
+  private static String upper(String s) {
+    return s == null ? null : s.trim().toUpperCase();
+  }
+}
@@ -0,0 +1,9 @@
+package com.sts.backend.orders;
+
+/** One simulated execution; {@code qty} is always positive, {@code side} is BUY or SELL. */
+public record Fill(long orderId, String account, String symbol, String side, int qty, double price, long ts) {
+
+  public long signedQty() {
+    return "BUY".equals(side) ? qty : -qty;
+  }
+}
@@ -0,0 +1,170 @@
+package com.sts.backend.orders;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * IdempotencyIndex — bounded, time-expiring map from (account, client key)
+ * to the order id it created.
+ *
+ * Layout is flat primitive arrays split into lock stripes: each slot is a
+ * 64-bit key fingerprint, the order id and an expiry (seconds since the
+ * index started), i.e. 20 bytes per slot with no per-entry objects. Keys are
+ * never stored, only their fingerprint; at one million keys the chance of a
+ * false duplicate is around 1e-8.
+ *
+ * Lookups probe a short window of slots. Expired slots are reused in place;
+ * when a window is full of live keys the one expiring first is evicted, so
+ * memory stays at the configured capacity.
+ */
+@Component
+public class IdempotencyIndex {
+
+  public static final long NONE = -1L;
+
+  private static final int STRIPES = 64;
+  private static final int PROBE = 16;
+
+  private final Segment[] segments = new Segment[STRIPES];
+  private final long epochMs = System.currentTimeMillis();
+  private final int ttlSeconds;
+  private final int slotsPerSegment;
+
+  public IdempotencyIndex(
+      @Value("${orders.idempotency.max-keys:262144}") int maxKeys,
+      @Value("${orders.idempotency.ttl-hours:24}") int ttlHours
+  ) {
+    // size for ~75% load, rounded up to a power of two so the slot mask is a single AND
+    int perSegment = Math.max(PROBE, (int) (maxKeys * 4L / 3 / STRIPES));
+    this.slotsPerSegment = Integer.highestOneBit(perSegment - 1) << 1;
+    this.ttlSeconds = Math.max(1, ttlHours) * 3600;
+    for (int i = 0; i < STRIPES; i++) segments[i] = new Segment(slotsPerSegment);
+  }
+
+  /** 64-bit fingerprint of an account-scoped client key; never 0. */
+  public static long fingerprint(String account, String key) {
+    long h = 0xcbf29ce484222325L;
+    h = mixIn(h, account);
+    h = (h ^ 0xff) * 0x100000001b3L;
+    h = mixIn(h, key);
+    // final avalanche (splitmix64)
+    h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+    h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+    h = h ^ (h >>> 31);
+    return h == 0 ? 1 : h;
+  }
+
+  /**
+   * Store {@code orderId} under {@code fp} unless a live entry exists.
+   *
+   * @return the existing order id, or {@link #NONE} if this call inserted
+   */
+  public long putIfAbsent(long fp, long orderId) {
+    int now = nowSeconds();
+    Segment seg = segment(fp);
+    synchronized (seg) {
+      int mask = slotsPerSegment - 1;
+      int start = (int) fp & mask;
+      int free = -1;
+      int oldest = start;
+      for (int i = 0; i < PROBE; i++) {
+        int s = (start + i) & mask;
+        long k = seg.keys[s];
+        if (k == 0) {
+          if (free < 0) free = s;
+          break;                                // never used → end of chain
+        }
+        boolean live = seg.expiry[s] > now;
+        if (k == fp && live) {
+          seg.hits++;
+          return seg.ids[s];
+        }
+        if (!live && free < 0) free = s;
+        if (seg.expiry[s] < seg.expiry[oldest]) oldest = s;
+      }
+      if (free < 0) {
+        free = oldest;
+        seg.evictions++;
+      } else if (seg.keys[free] == 0 || seg.expiry[free] == 0) {
+        seg.occupied++;
+      }
+      seg.keys[free] = fp;
+      seg.ids[free] = orderId;
+      seg.expiry[free] = now + ttlSeconds;
+      return NONE;
+    }
+  }
+
+  /** Drop an entry again, e.g. when the order it guarded was rejected. */
+  public void remove(long fp, long orderId) {
+    Segment seg = segment(fp);
+    synchronized (seg) {
+      int mask = slotsPerSegment - 1;
+      int start = (int) fp & mask;
+      for (int i = 0; i < PROBE; i++) {
+        int s = (start + i) & mask;
+        if (seg.keys[s] == 0) return;
+        if (seg.keys[s] == fp && seg.ids[s] == orderId) {
+          seg.expiry[s] = 0;                    // tombstone: keeps the chain intact
+          seg.occupied--;
+          return;
+        }
+      }
+    }
+  }
+
+  public Map<String, Object> stats() {
+    long occupied = 0, hits = 0, evictions = 0;
+    for (Segment seg : segments) {
+      synchronized (seg) {
+        occupied += seg.occupied;
+        hits += seg.hits;
+        evictions += seg.evictions;
+      }
+    }
+    long slots = (long) slotsPerSegment * STRIPES;
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("capacity", slots);
+    out.put("occupied", occupied);
+    out.put("bytes", slots * (8 + 8 + 4));
+    out.put("hits", hits);
+    out.put("evictions", evictions);
+    out.put("ttlSeconds", ttlSeconds);
+    return out;
+  }
+
+  /* ------------------- INTERNAL HELPERS ------------------- */
+
+  private Segment segment(long fp) {
+    return segments[(int) (fp >>> 58) & (STRIPES - 1)];
+  }
+
+  private int nowSeconds() {
+    return (int) ((System.currentTimeMillis() - epochMs) / 1000) + 1;
+  }
+
+  private static long mixIn(long h, String s) {
+    if (s == null) return h;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  private static final class Segment {
+    final long[] keys;
+    final long[] ids;
+    final int[] expiry;
+    long occupied, hits, evictions;
+
+    Segment(int slots) {
+      keys = new long[slots];
+      ids = new long[slots];
+      expiry = new int[slots];
+    }
+  }
+}
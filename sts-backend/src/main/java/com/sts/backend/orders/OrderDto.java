@@ -0,0 +1,25 @@
+package com.sts.backend.orders;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record OrderDto(long id, String symbol, String side, String type, int qty,
+                       BigDecimal limitPrice, BigDecimal stopPrice, BigDecimal trailAmount,
+                       String status, Instant createdAt, String clientOrderId,
+                       BigDecimal filledPrice, Instant filledAt) {
+
+  public OrderDto withStatus(String newStatus) {
+    return new OrderDto(id, symbol, side, type, qty, limitPrice, stopPrice, trailAmount,
+        newStatus, createdAt, clientOrderId, filledPrice, filledAt);
+  }
+
+  public OrderDto withFill(BigDecimal price, Instant at) {
+    return new OrderDto(id, symbol, side, type, qty, limitPrice, stopPrice, trailAmount,
+        "FILLED", createdAt, clientOrderId, price, at);
+  }
+
+  /** STOP, STOP_LIMIT and TRAILING_STOP rest server-side until their trigger fires. */
+  public boolean restsOnTrigger() {
+    return "STOP".equals(type) || "STOP_LIMIT".equals(type) || "TRAILING_STOP".equals(type);
+  }
+}
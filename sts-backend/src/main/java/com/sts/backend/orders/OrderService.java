@@ -0,0 +1,354 @@
+package com.sts.backend.orders;
+
+import com.sts.backend.common.Accounts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * OrderService — in-memory order store behind /api/orders.
+ *
+ * Every submission goes through {@link PreTradeRiskCheck} before it is
+ * accepted; cancelling an order releases what the check reserved.
+ *
+ * Submissions carrying a client key (Idempotency-Key header or
+ * clientOrderId) are deduplicated through {@link IdempotencyIndex}: a
+ * repeat returns the original order without running the order path again.
+ *
+ * STOP, STOP_LIMIT and TRAILING_STOP orders rest as PENDING in
+ * {@link TriggerIndex}. When a tick fires one, the parent is marked
+ * TRIGGERED and a MARKET (or LIMIT, for STOP_LIMIT) child is submitted
+ * through the normal path.
+ *
+ * Accepted MARKET and LIMIT orders are routed to {@link PaperFillSimulator};
+ * its fills mark the order FILLED, settle the risk reservation at the fill
+ * price and are fanned out to registered fill listeners.
+ *
+ * Baskets (submitBatch) and cancel-all take the account's risk state once
+ * for the whole request and walk the order store in a single pass.
+ */
+@Service
+public class OrderService {
+
+  private final PreTradeRiskCheck risk;
+  private final IdempotencyIndex dedup;
+  private final TriggerIndex triggers;
+  private final PaperFillSimulator venue;
+  private final int maxBatchSize;
+  private final List<Consumer<Fill>> fillListeners = new CopyOnWriteArrayList<>();
+
+  private final AtomicLong seq = new AtomicLong(1);
+  // visible orders (cancelled ones drop out); byId also keeps cancelled orders for replays
+  private final Map<Long, OrderDto> store = new ConcurrentHashMap<>();
+  private final Map<Long, OrderDto> byId = new ConcurrentHashMap<>();
+  private final Map<Long, PreTradeRiskCheck.Reservation> reservations = new ConcurrentHashMap<>();
+  private final Map<Long, String> owners = new ConcurrentHashMap<>();
+
+  public OrderService(PreTradeRiskCheck risk, IdempotencyIndex dedup, TriggerIndex triggers,
+                      PaperFillSimulator venue,
+                      @Value("${orders.batch.max-size:100}") int maxBatchSize) {
+    this.risk = risk;
+    this.dedup = dedup;
+    this.triggers = triggers;
+    this.venue = venue;
+    this.maxBatchSize = maxBatchSize;
+    triggers.onFire(this::onTriggered);
+    venue.onFill(this::onFilled, reservations::containsKey);
+  }
+
+  /** Seed a few demo orders (dev profile) for the demo account. */
+  public void initializeDemoOrders() {
+    if (!store.isEmpty()) return;
+    Instant now = Instant.now();
+    add(new OrderDto(seq.getAndIncrement(), "AAPL", "BUY", "LIMIT", 10,
+        new BigDecimal("173.50"), null, null, "FILLED", now.minusSeconds(3600), null,
+        new BigDecimal("173.50"), now.minusSeconds(3600)));
+    add(new OrderDto(seq.getAndIncrement(), "GOOGL", "SELL", "LIMIT", 5,
+        new BigDecimal("128.40"), null, null, "FILLED", now.minusSeconds(7200), null,
+        new BigDecimal("128.40"), now.minusSeconds(7200)));
+    add(new OrderDto(seq.getAndIncrement(), "TSLA", "BUY", "MARKET", 2,
+        new BigDecimal("251.67"), null, null, "PENDING", now.minusSeconds(1800), null, null, null));
+  }
+
+  /** Every fill so far, oldest first; lets late listeners rebuild their state. */
+  public List<Fill> fills() {
+    List<Fill> out = new ArrayList<>();
+    for (OrderDto o : byId.values()) {
+      if (o.filledPrice() == null || o.filledAt() == null) continue;
+      out.add(new Fill(o.id(), owners.getOrDefault(o.id(), Accounts.DEMO), o.symbol(), o.side(), o.qty(),
+          o.filledPrice().doubleValue(), o.filledAt().toEpochMilli()));
+    }
+    out.sort(Comparator.comparingLong(Fill::ts));
+    return out;
+  }
+
+  public List<OrderDto> list(Integer limit) {
+    List<OrderDto> all = new ArrayList<>(store.values());
+    all.sort(Comparator.comparing(OrderDto::createdAt).reversed());
+    if (limit != null && limit > 0 && limit < all.size()) return all.subList(0, limit);
+    return all;
+  }
+
+  /**
+   * Risk-check and accept an order.
+   *
+   * @param idempotencyKey optional client key; falls back to {@code req.clientOrderId()}
+   * @throws RiskRejectedException if any pre-trade check fails
+   */
+  public OrderDto submit(String account, CreateOrderReq req, String idempotencyKey) {
+    CreateOrderReq n = req == null ? null : req.normalized();
+    String key = idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey.trim()
+        : n == null ? null : n.clientOrderId();
+    long id = seq.getAndIncrement();
+    if (key == null) return accept(id, account, n, null, risk.check(account, n));
+
+    long fp = IdempotencyIndex.fingerprint(account, key);
+    OrderDto prior = replay(fp, id);
+    if (prior != null) return prior;
+    try {
+      return accept(id, account, n, key, risk.check(account, n));
+    } catch (RuntimeException ex) {
+      dedup.remove(fp, id);   // a rejected order must not pin its key
+      throw ex;
+    }
+  }
+
+  /**
+   * Submit a basket. Per-item clientOrderIds are honoured (an id repeated
+   * within the batch gets the outcome of its first item); the risk state
+   * of the account is taken once for all items.
+   *
+   * @param atomic all-or-nothing when true, otherwise each item stands alone
+   */
+  public BatchOrderResult submitBatch(String account, List<CreateOrderReq> reqs, boolean atomic) {
+    if (reqs == null || reqs.isEmpty()) throw new IllegalArgumentException("orders are required");
+    if (reqs.size() > maxBatchSize) throw new IllegalArgumentException("at most " + maxBatchSize + " orders per batch");
+
+    int n = reqs.size();
+    OrderDto[] done = new OrderDto[n];
+    long[] ids = new long[n];
+    long[] fps = new long[n];
+    boolean[] claimed = new boolean[n];
+    int[] sameAs = new int[n];
+    Arrays.fill(sameAs, -1);
+    Map<String, Integer> firstByKey = new HashMap<>();
+    List<CreateOrderReq> toCheck = new ArrayList<>(n);
+    List<Integer> slots = new ArrayList<>(n);
+
+    List<PreTradeRiskCheck.Outcome> outcomes;
+    try {
+      // replays first: they must not run the order path again
+      for (int i = 0; i < n; i++) {
+        CreateOrderReq req = reqs.get(i);
+        CreateOrderReq norm = req == null ? null : req.normalized();
+        ids[i] = seq.getAndIncrement();
+        if (norm != null && norm.clientOrderId() != null) {
+          Integer first = firstByKey.putIfAbsent(norm.clientOrderId(), i);
+          if (first != null) {
+            sameAs[i] = first;
+            continue;
+          }
+          fps[i] = IdempotencyIndex.fingerprint(account, norm.clientOrderId());
+          done[i] = replay(fps[i], ids[i]);
+          if (done[i] != null) continue;
+          claimed[i] = true;
+        }
+        toCheck.add(norm);
+        slots.add(i);
+      }
+      outcomes = risk.checkBatch(account, toCheck, atomic);
+    } catch (RuntimeException ex) {
+      // a key still in flight elsewhere, or a failed check: keys claimed so far must not stay pinned
+      for (int i = 0; i < n; i++) {
+        if (claimed[i]) dedup.remove(fps[i], ids[i]);
+      }
+      throw ex;
+    }
+    List<BatchOrderResult.Item> items = new ArrayList<>(n);
+    RiskRejectedException[] rejected = new RiskRejectedException[n];
+    for (int j = 0; j < outcomes.size(); j++) {
+      int i = slots.get(j);
+      PreTradeRiskCheck.Outcome out = outcomes.get(j);
+      if (out.reservation() != null) {
+        done[i] = accept(ids[i], account, toCheck.get(j), toCheck.get(j).clientOrderId(), out.reservation());
+      } else {
+        rejected[i] = out.rejection();
+        if (claimed[i]) dedup.remove(fps[i], ids[i]);
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      if (sameAs[i] < 0) continue;
+      done[i] = done[sameAs[i]];
+      rejected[i] = rejected[sameAs[i]];
+    }
+
+    int accepted = 0;
+    for (int i = 0; i < n; i++) {
+      if (done[i] != null) {
+        accepted++;
+        items.add(new BatchOrderResult.Item(i, done[i], null, null));
+      } else {
+        items.add(new BatchOrderResult.Item(i, null, rejected[i].getReason().name(), rejected[i].getMessage()));
+      }
+    }
+    return new BatchOrderResult(accepted, n - accepted, items);
+  }
+
+  /**
+   * Cancel one of the account's open (ACCEPTED / PENDING) orders.
+   *
+   * @throws ResponseStatusException 404 when the order is unknown or belongs to another account,
+   *                                 409 when it is no longer open
+   */
+  public void cancel(String account, long id) {
+    if (!account.equals(owners.get(id))) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no order " + id);
+    }
+    OrderDto o = byId.get(id);
+    if (o == null || !"ACCEPTED".equals(o.status()) && !"PENDING".equals(o.status())) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "order " + id + " is " + (o == null ? "gone" : o.status()));
+    }
+    PreTradeRiskCheck.Reservation r = reservations.remove(id);
+    if (r == null) {
+      // filled or triggered since the status was read
+      throw new ResponseStatusException(HttpStatus.CONFLICT, "order " + id + " is no longer open");
+    }
+    triggers.remove(id);
+    venue.cancel(id);
+    store.remove(id);
+    // keep the cancelled order in byId so an idempotent replay still finds it
+    byId.computeIfPresent(id, (k, cur) -> cur.withStatus("CANCELED"));
+    risk.release(r);
+  }
+
+  /**
+   * Cancel every open (ACCEPTED / PENDING) order of the account, optionally
+   * narrowed by symbol and side: one pass over the store, one release of
+   * the account's risk state.
+   *
+   * @return ids of the cancelled orders
+   */
+  public List<Long> cancelAll(String account, String symbol, String side) {
+    String sym = symbol == null || symbol.isBlank() ? null : symbol.trim().toUpperCase();
+    String sd = side == null || side.isBlank() ? null : side.trim().toUpperCase();
+
+    List<Long> ids = new ArrayList<>();
+    List<PreTradeRiskCheck.Reservation> released = new ArrayList<>();
+    for (OrderDto o : store.values()) {
+      if (!"ACCEPTED".equals(o.status()) && !"PENDING".equals(o.status())) continue;
+      if (sym != null && !sym.equals(o.symbol())) continue;
+      if (sd != null && !sd.equals(o.side())) continue;
+      PreTradeRiskCheck.Reservation r = reservations.get(o.id());
+      if (r == null || !account.equals(r.account())) continue;
+      if (!reservations.remove(o.id(), r)) continue;   // filled / triggered meanwhile
+
+      triggers.remove(o.id());
+      venue.cancel(o.id());
+      store.remove(o.id());
+      byId.put(o.id(), o.withStatus("CANCELED"));
+      released.add(r);
+      ids.add(o.id());
+    }
+    risk.releaseAll(account, released);
+    return ids;
+  }
+
+  /** Called on the venue thread for every fill. */
+  public void addFillListener(Consumer<Fill> listener) {
+    fillListeners.add(listener);
+  }
+
+  public Map<String, Object> venueStats() {
+    return venue.stats();
+  }
+
+  public Map<String, Object> idempotencyStats() {
+    return dedup.stats();
+  }
+
+  /**
+   * Claim an idempotency fingerprint for {@code id}.
+   *
+   * @return the original order if the key was already used, else null
+   */
+  private OrderDto replay(long fp, long id) {
+    long existing = dedup.putIfAbsent(fp, id);
+    if (existing == IdempotencyIndex.NONE) return null;
+    OrderDto prior = byId.get(existing);
+    if (prior != null) return prior;
+    // first submission with this key is still being processed
+    throw new ResponseStatusException(HttpStatus.CONFLICT, "order with this key is in flight");
+  }
+
+  private OrderDto accept(long id, String account, CreateOrderReq n, String key, PreTradeRiskCheck.Reservation r) {
+    OrderDto o = new OrderDto(
+        id,
+        n.symbol(), n.side(), n.type(),
+        n.qty(), n.limitPrice(), n.stopPrice(), n.trailAmount(),
+        "ACCEPTED",
+        Instant.now(),
+        key,
+        null, null
+    );
+    if (o.restsOnTrigger()) o = o.withStatus("PENDING");
+    reservations.put(o.id(), r);
+    owners.put(o.id(), account);
+    store.put(o.id(), o);
+    byId.put(o.id(), o);
+    if (o.restsOnTrigger()) triggers.add(o);
+    else venue.submit(o, account);
+    return o;
+  }
+
+  /** Venue thread: settle a fill unless the order was cancelled meanwhile. */
+  private void onFilled(Fill f) {
+    PreTradeRiskCheck.Reservation r = reservations.remove(f.orderId());
+    if (r == null) return;
+    risk.settle(r, f.price(), f.qty());
+    OrderDto o = byId.get(f.orderId());
+    if (o != null) replace(o.withFill(BigDecimal.valueOf(f.price()), Instant.ofEpochMilli(f.ts())));
+    for (Consumer<Fill> l : fillListeners) l.accept(f);
+  }
+
+  /** Tick thread: a resting stop fired → hand a child order to the normal path. */
+  private void onTriggered(OrderDto parent) {
+    PreTradeRiskCheck.Reservation r = reservations.remove(parent.id());
+    if (r == null) return;   // cancelled concurrently
+    risk.release(r);
+    replace(parent.withStatus("TRIGGERED"));
+
+    boolean limit = "STOP_LIMIT".equals(parent.type());
+    CreateOrderReq child = new CreateOrderReq(parent.symbol(), parent.side(), limit ? "LIMIT" : "MARKET",
+        parent.qty(), limit ? parent.limitPrice() : null, null, null, null);
+    try {
+      submit(r.account(), child, "trigger-" + parent.id());
+    } catch (RiskRejectedException ex) {
+      replace(parent.withStatus("REJECTED"));
+    }
+  }
+
+  private void replace(OrderDto updated) {
+    byId.put(updated.id(), updated);
+    store.computeIfPresent(updated.id(), (k, o) -> updated);
+  }
+
+  private void add(OrderDto o) {
+    store.put(o.id(), o);
+    byId.put(o.id(), o);
+    owners.put(o.id(), Accounts.DEMO);
+    if (o.filledPrice() != null) {
+      Fill f = new Fill(o.id(), Accounts.DEMO, o.symbol(), o.side(), o.qty(),
+          o.filledPrice().doubleValue(), o.filledAt().toEpochMilli());
+      for (Consumer<Fill> l : fillListeners) l.accept(f);
+    }
+  }
+}
@@ -1,79 +1,77 @@
 package com.sts.backend.orders;
 
+import com.sts.backend.common.Accounts;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequestMapping("/api/orders")
 @Profile("dev")
 public class OrdersSseController {
 
-  private final AtomicLong seq = new AtomicLong(1);
-  private final List<OrderDto> store = new CopyOnWriteArrayList<>();
-  private final Map<Long, OrderDto> byId = new ConcurrentHashMap<>();
+  private final OrderService orders;
 
   // Initialize with demo orders
-  public OrdersSseController() {
-    initializeDemoOrders();
-  }
-
-  private void initializeDemoOrders() {
-    Instant now = Instant.now();
-    // Add a few demo orders
-    OrderDto o1 = new OrderDto(seq.getAndIncrement(), "AAPL", "BUY", "LIMIT", 10, 
-        new BigDecimal("173.50"), "FILLED", now.minusSeconds(3600));
-    store.add(o1);
-    byId.put(o1.id(), o1);
-
-    OrderDto o2 = new OrderDto(seq.getAndIncrement(), "GOOGL", "SELL", "LIMIT", 5, 
-        new BigDecimal("128.40"), "FILLED", now.minusSeconds(7200));
-    store.add(o2);
-    byId.put(o2.id(), o2);
-
-    OrderDto o3 = new OrderDto(seq.getAndIncrement(), "TSLA", "BUY", "MARKET", 2, 
-        new BigDecimal("251.67"), "PENDING", now.minusSeconds(1800));
-    store.add(o3);
-    byId.put(o3.id(), o3);
+  public OrdersSseController(OrderService orders) {
+    this.orders = orders;
+    orders.initializeDemoOrders();
   }
 
   // GET /api/orders?limit=100
   @GetMapping
   public List<OrderDto> list(@RequestParam(name = "limit", required = false) Integer limit) {
-    List<OrderDto> all = new ArrayList<>(store);
-    all.sort(Comparator.comparing(OrderDto::createdAt).reversed());
-    if (limit != null && limit > 0 && limit < all.size()) return all.subList(0, limit);
-    return all;
+    return orders.list(limit);
   }
 
   // POST /api/orders  (what your UI calls)
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-  public OrderDto create(@RequestBody CreateOrderReq req) {
-    OrderDto o = new OrderDto(
-        seq.getAndIncrement(),
-        req.symbol(), req.side(), req.type(),
-        req.qty(), req.limitPrice(),
-        "ACCEPTED",
-        Instant.now()
-    );
-    store.add(0, o);
-    byId.put(o.id(), o);
-    return o;
+  public OrderDto create(@RequestBody CreateOrderReq req,
+                         @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                         Authentication auth) {
+    return orders.submit(Accounts.of(auth), req, idempotencyKey);
+  }
+
+  // POST /api/orders/batch  {"orders":[...], "atomic":false}
+  @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<BatchOrderResult> batch(@RequestBody BatchOrderReq req, Authentication auth) {
+    boolean atomic = Boolean.TRUE.equals(req.atomic());
+    BatchOrderResult result = orders.submitBatch(Accounts.of(auth), req.orders(), atomic);
+    if (atomic && result.rejected() > 0) return ResponseEntity.unprocessableEntity().body(result);
+    return ResponseEntity.ok(result);
+  }
+
+  // DELETE /api/orders?symbol=&side=  (cancel all open orders of the caller)
+  @DeleteMapping
+  public Map<String, Object> cancelAll(@RequestParam(name = "symbol", required = false) String symbol,
+                                       @RequestParam(name = "side", required = false) String side,
+                                       Authentication auth) {
+    List<Long> ids = orders.cancelAll(Accounts.of(auth), symbol, side);
+    return Map.of("cancelled", ids.size(), "ids", ids);
+  }
+
+  // GET /api/orders/simulator  (paper venue throughput)
+  @GetMapping("/simulator")
+  public Map<String, Object> simulator() {
+    return orders.venueStats();
+  }
+
+  // GET /api/orders/idempotency  (dedup index memory / hit stats)
+  @GetMapping("/idempotency")
+  public Map<String, Object> idempotency() {
+    return orders.idempotencyStats();
   }
 
   // DELETE /api/orders/{id}
   @DeleteMapping("/{id}")
-  public void cancel(@PathVariable long id) {
-    store.removeIf(o -> o.id() == id);
-    byId.remove(id);
+  public void cancel(@PathVariable long id, Authentication auth) {
+    orders.cancel(Accounts.of(auth), id);
   }
 
   // Optional: SSE stream used by your frontend as a fallback
@@ -94,8 +92,13 @@ public class OrdersSseController {
     return emitter;
   }
 
-  /* DTOs */
-  public record CreateOrderReq(String symbol, String side, String type, int qty, BigDecimal limitPrice) {}
-  public record OrderDto(long id, String symbol, String side, String type, int qty,
-                         BigDecimal limitPrice, String status, Instant createdAt) {}
+  // Risk rejections → 422 with a machine-readable reason
+  @ExceptionHandler(RiskRejectedException.class)
+  public ResponseEntity<Map<String, Object>> rejected(RiskRejectedException ex) {
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(Map.of(
+        "error", "ORDER_REJECTED",
+        "reason", ex.getReason().name(),
+        "message", ex.getMessage()
+    ));
+  }
 }
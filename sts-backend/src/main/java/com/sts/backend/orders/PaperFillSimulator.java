@@ -0,0 +1,292 @@
+package com.sts.backend.orders;
+
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+/**
+ * PaperFillSimulator — simulated execution venue driven by the live quote
+ * stream.
+ *
+ *  - MARKET orders fill at the quote seen after the simulated venue latency,
+ *    plus slippage.
+ *  - LIMIT orders are checked on arrival; if not marketable they rest in a
+ *    per-symbol price-sorted book and fill on the first tick that crosses.
+ *
+ * Slippage is either a fixed number of bps or fixed + a size-dependent
+ * impact ("volume" model). LIMIT fills never trade through the limit.
+ *
+ * All fills are produced on the simulator's own executor, never on the
+ * request thread or the quote tick thread. Fills go to the consumer
+ * registered with {@link #onFill}.
+ */
+@Component
+public class PaperFillSimulator {
+
+  private static final double TICKS = 10_000.0;
+  private static final int WINDOW = 60;
+
+  private final QuoteBook quotes;
+  private final boolean volumeModel;
+  private final double slippageBps;
+  private final double impactBpsPerThousand;
+  private final long latencyMs;
+  private final long jitterMs;
+
+  private final ScheduledExecutorService exec;
+  private final Map<String, LimitBook> books = new ConcurrentHashMap<>();
+  private final Map<Long, Working> resting = new ConcurrentHashMap<>();
+  private volatile Consumer<Fill> onFill = f -> {};
+  private volatile LongPredicate working = id -> true;
+
+  // throughput
+  private final long startedAt = System.currentTimeMillis();
+  private final LongAdder received = new LongAdder();
+  private final LongAdder filled = new LongAdder();
+  private final LongAdder fillLatencyNanos = new LongAdder();
+  private final AtomicLongArray perSecond = new AtomicLongArray(WINDOW);
+  private final AtomicLongArray stamps = new AtomicLongArray(WINDOW);
+
+  public PaperFillSimulator(
+      QuoteBook quotes,
+      @Value("${orders.sim.slippage-model:fixed}") String slippageModel,
+      @Value("${orders.sim.slippage-bps:2}") double slippageBps,
+      @Value("${orders.sim.impact-bps-per-1000:5}") double impactBpsPerThousand,
+      @Value("${orders.sim.latency-ms:50}") long latencyMs,
+      @Value("${orders.sim.latency-jitter-ms:25}") long jitterMs,
+      @Value("${orders.sim.threads:2}") int threads
+  ) {
+    this.quotes = quotes;
+    this.volumeModel = "volume".equalsIgnoreCase(slippageModel);
+    this.slippageBps = slippageBps;
+    this.impactBpsPerThousand = impactBpsPerThousand;
+    this.latencyMs = latencyMs;
+    this.jitterMs = jitterMs;
+    this.exec = Executors.newScheduledThreadPool(Math.max(1, threads), r -> {
+      Thread t = new Thread(r, "paper-fills");
+      t.setDaemon(true);
+      return t;
+    });
+    quotes.addListener(this::onTick);
+  }
+
+  /**
+   * @param consumer receives every fill
+   * @param stillWorking tells the venue whether an order is still live, so
+   *                     one cancelled while in flight never rests
+   */
+  public void onFill(Consumer<Fill> consumer, LongPredicate stillWorking) {
+    this.onFill = consumer;
+    this.working = stillWorking;
+  }
+
+  /** Route an accepted MARKET or LIMIT order to the venue. */
+  public void submit(OrderDto order, String account) {
+    received.increment();
+    Working w = new Working(order, account, System.nanoTime());
+    long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+    exec.schedule(() -> arrive(w), delay, TimeUnit.MILLISECONDS);
+  }
+
+  /** Pull a resting LIMIT order; @return true if it was still resting. */
+  public boolean cancel(long orderId) {
+    Working w = resting.remove(orderId);
+    if (w == null) return false;
+    LimitBook book = books.get(w.order.symbol());
+    synchronized (book) {
+      book.remove(w);
+    }
+    quotes.untrack(w.order.symbol());
+    return true;
+  }
+
+  @FunctionalInterface
+  public interface LevelSink {
+    void level(boolean buy, long priceTicks, long qty);
+  }
+
+  /**
+   * Resting LIMIT quantity per price level (price ×10 000), best first, at
+   * most {@code levels} per side.
+   */
+  public void restingLevels(String symbol, int levels, LevelSink sink) {
+    LimitBook book = books.get(symbol);
+    if (book == null) return;
+    synchronized (book) {
+      book.levels(book.buys, true, levels, sink);
+      book.levels(book.sells, false, levels, sink);
+    }
+  }
+
+  public Map<String, Object> stats() {
+    long now = System.currentTimeMillis();
+    long sec = now / 1000;
+    long recent = 0;
+    for (int i = 0; i < WINDOW; i++) {
+      long st = stamps.get(i);
+      if (st > sec - 10 && st < sec) recent += perSecond.get(i);
+    }
+    long f = filled.sum();
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("received", received.sum());
+    out.put("filled", f);
+    out.put("resting", resting.size());
+    out.put("fillsPerSecLast10s", recent / 10.0);
+    out.put("fillsPerSecSinceStart", f * 1000.0 / Math.max(1, now - startedAt));
+    out.put("avgFillLatencyMs", f == 0 ? 0.0 : fillLatencyNanos.sum() / 1e6 / f);
+    out.put("queued", exec instanceof ThreadPoolExecutor tpe ? tpe.getQueue().size() : -1);
+    out.put("slippageModel", volumeModel ? "volume" : "fixed");
+    out.put("slippageBps", slippageBps);
+    out.put("latencyMs", latencyMs);
+    return out;
+  }
+
+  /* ------------------- VENUE ------------------- */
+
+  private void arrive(Working w) {
+    OrderDto o = w.order;
+    if (!working.test(o.id())) return;
+    double last = quotes.last(o.symbol());
+    if ("MARKET".equals(o.type())) {
+      if (Double.isNaN(last)) {
+        // no price yet: retry on the next latency slot
+        exec.schedule(() -> arrive(w), Math.max(1, latencyMs), TimeUnit.MILLISECONDS);
+        return;
+      }
+      fill(w, last);
+      return;
+    }
+    if (!Double.isNaN(last) && marketable(o, last)) {
+      fill(w, last);
+      return;
+    }
+    // registered and tracked before it is in the book, so a crossing tick can claim it;
+    // the track is released by whichever of fill or cancel takes it out of resting
+    LimitBook book = books.computeIfAbsent(o.symbol(), k -> new LimitBook());
+    resting.put(o.id(), w);
+    quotes.track(o.symbol());
+    synchronized (book) {
+      if (resting.get(o.id()) == w) book.add(w);   // not if a cancel got in first
+    }
+  }
+
+  /** Tick thread: collect crossed limits, fill them on the venue executor. */
+  private void onTick(String symbol, double price, long ts) {
+    LimitBook book = books.get(symbol);
+    if (book == null) return;
+    List<Working> crossed = new ArrayList<>();
+    synchronized (book) {
+      book.cross(price, crossed);
+    }
+    for (Working w : crossed) {
+      if (resting.remove(w.order.id()) == null) continue;   // cancelled concurrently
+      quotes.untrack(symbol);
+      exec.execute(() -> fill(w, price));
+    }
+  }
+
+  private void fill(Working w, double last) {
+    OrderDto o = w.order;
+    double limit = "LIMIT".equals(o.type()) ? o.limitPrice().doubleValue() : Double.NaN;
+    double px = fillPrice("BUY".equals(o.side()), o.qty(), last, limit);
+
+    long now = System.currentTimeMillis();
+    filled.increment();
+    fillLatencyNanos.add(System.nanoTime() - w.arrivedNanos);
+    countSecond(now / 1000);
+    onFill.accept(new Fill(o.id(), w.account, o.symbol(), o.side(), o.qty(), px, now));
+  }
+
+  /**
+   * Execution price for {@code qty} against {@code last} under the configured
+   * slippage model; a LIMIT ({@code limit} not NaN) never trades through its limit.
+   */
+  public double fillPrice(boolean buy, long qty, double last, double limit) {
+    double bps = slippageBps + (volumeModel ? impactBpsPerThousand * qty / 1000.0 : 0.0);
+    double px = last * (1.0 + (buy ? bps : -bps) / 10_000.0);
+    if (!Double.isNaN(limit)) px = buy ? Math.min(px, limit) : Math.max(px, limit);
+    return Math.round(px * TICKS) / TICKS;
+  }
+
+  private static boolean marketable(OrderDto o, double last) {
+    double limit = o.limitPrice().doubleValue();
+    return "BUY".equals(o.side()) ? last <= limit : last >= limit;
+  }
+
+  private void countSecond(long sec) {
+    int i = (int) (sec % WINDOW);
+    if (stamps.get(i) != sec) {
+      stamps.set(i, sec);
+      perSecond.set(i, 0);
+    }
+    perSecond.incrementAndGet(i);
+  }
+
+  /* ------------------- STRUCTURES ------------------- */
+
+  private static final class Working {
+    final OrderDto order;
+    final String account;
+    final long arrivedNanos;
+    long key;
+
+    Working(OrderDto order, String account, long arrivedNanos) {
+      this.order = order;
+      this.account = account;
+      this.arrivedNanos = arrivedNanos;
+    }
+  }
+
+  /**
+   * Resting limits of one symbol in "crosses when x <= key" orientation:
+   * buys keyed by +limit against +price, sells by -limit against -price.
+   */
+  private static final class LimitBook {
+    final TreeMap<Long, Map<Long, Working>> buys = new TreeMap<>();
+    final TreeMap<Long, Map<Long, Working>> sells = new TreeMap<>();
+
+    void add(Working w) {
+      boolean buy = "BUY".equals(w.order.side());
+      long t = Math.round(w.order.limitPrice().doubleValue() * TICKS);
+      w.key = buy ? t : -t;
+      (buy ? buys : sells).computeIfAbsent(w.key, k -> new LinkedHashMap<>()).put(w.order.id(), w);
+    }
+
+    void remove(Working w) {
+      TreeMap<Long, Map<Long, Working>> side = "BUY".equals(w.order.side()) ? buys : sells;
+      Map<Long, Working> level = side.get(w.key);
+      if (level == null) return;
+      level.remove(w.order.id());
+      if (level.isEmpty()) side.remove(w.key);
+    }
+
+    void cross(double price, List<Working> out) {
+      long t = Math.round(price * TICKS);
+      drain(buys.tailMap(t, true), out);
+      drain(sells.tailMap(-t, true), out);
+    }
+
+    /** Both sides keep their best price at the highest key. */
+    void levels(TreeMap<Long, Map<Long, Working>> side, boolean buy, int max, LevelSink sink) {
+      int n = 0;
+      for (Map.Entry<Long, Map<Long, Working>> e : side.descendingMap().entrySet()) {
+        if (n++ == max) break;
+        long qty = 0;
+        for (Working w : e.getValue().values()) qty += w.order.qty();
+        sink.level(buy, buy ? e.getKey() : -e.getKey(), qty);
+      }
+    }
+
+    private static void drain(NavigableMap<Long, Map<Long, Working>> hit, List<Working> out) {
+      for (Map<Long, Working> level : hit.values()) out.addAll(level.values());
+      hit.clear();
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package com.sts.backend.orders;
+
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PreTradeRiskCheck — gate in front of order acceptance.
+ *
+ * Checks, in order:
+ *  - order shape (symbol, side, type, qty, limit price)
+ *  - symbol in the QuoteBook universe (anything else has no reference price)
+ *  - per-account order rate (token bucket)
+ *  - price collar of LIMIT orders against the current quote
+ *    (stop orders are priced at their stop / limit, trailing stops at the quote)
+ *  - max order notional
+ *  - max position per symbol (open exposure)
+ *  - buying power for BUY orders
+ *
+ * Each account has its own state object and is locked on its own, so
+ * checks for unrelated accounts never contend. Accepted orders leave a
+ * {@link Reservation} that must be released when the order is cancelled.
+ */
+@Component
+public class PreTradeRiskCheck {
+
+  public record Reservation(String account, String symbol, long signedQty, long notionalCents) {}
+
+  /** Result of one batch item: exactly one of the two is set. */
+  public record Outcome(Reservation reservation, RiskRejectedException rejection) {}
+
+  private final QuoteBook quotes;
+  private final long startingBuyingPowerCents;
+  private final long maxOrderNotionalCents;
+  private final long maxPosition;
+  private final double collarPct;
+  private final double ordersPerSecond;
+  private final double orderBurst;
+
+  private final Map<String, AccountRisk> accounts = new ConcurrentHashMap<>();
+
+  public PreTradeRiskCheck(
+      QuoteBook quotes,
+      @Value("${orders.risk.starting-buying-power:100000}") double startingBuyingPower,
+      @Value("${orders.risk.max-order-notional:50000}") double maxOrderNotional,
+      @Value("${orders.risk.max-position:10000}") long maxPosition,
+      @Value("${orders.risk.price-collar-pct:10}") double collarPct,
+      @Value("${orders.risk.orders-per-second:10}") double ordersPerSecond,
+      @Value("${orders.risk.order-burst:20}") double orderBurst
+  ) {
+    this.quotes = quotes;
+    this.startingBuyingPowerCents = toCents(startingBuyingPower);
+    this.maxOrderNotionalCents = toCents(maxOrderNotional);
+    this.maxPosition = maxPosition;
+    this.collarPct = collarPct;
+    this.ordersPerSecond = ordersPerSecond;
+    this.orderBurst = orderBurst;
+  }
+
+  /**
+   * Runs all checks for a normalized request and reserves buying power and
+   * position exposure on success.
+   *
+   * @throws RiskRejectedException with the first failing {@link RiskReason}
+   */
+  public Reservation check(String account, CreateOrderReq req) {
+    double px = price(req);
+    AccountRisk acct = account(account);
+    synchronized (acct) {
+      if (!acct.tryAcquire(System.nanoTime(), ordersPerSecond, orderBurst)) {
+        throw new RiskRejectedException(RiskReason.RATE_LIMITED, "order rate exceeded");
+      }
+      return reserve(acct, account, req, px);
+    }
+  }
+
+  /**
+   * Checks a basket under a single acquisition of the account state. The
+   * batch counts as one message against the order rate.
+   *
+   * In atomic mode the first rejection rolls back every reservation made so
+   * far and the remaining items are reported as {@link RiskReason#BATCH_REJECTED}.
+   */
+  public List<Outcome> checkBatch(String account, List<CreateOrderReq> reqs, boolean atomic) {
+    int n = reqs.size();
+    double[] px = new double[n];
+    Outcome[] out = new Outcome[n];
+    boolean failed = false;
+    for (int i = 0; i < n; i++) {
+      try {
+        px[i] = price(reqs.get(i));
+      } catch (RiskRejectedException ex) {
+        out[i] = new Outcome(null, ex);
+        failed = true;
+      }
+    }
+
+    AccountRisk acct = account(account);
+    synchronized (acct) {
+      if (!acct.tryAcquire(System.nanoTime(), ordersPerSecond, orderBurst)) {
+        RiskRejectedException ex = new RiskRejectedException(RiskReason.RATE_LIMITED, "order rate exceeded");
+        for (int i = 0; i < n; i++) if (out[i] == null) out[i] = new Outcome(null, ex);
+        return Arrays.asList(out);
+      }
+      for (int i = 0; i < n && !(atomic && failed); i++) {
+        if (out[i] != null) continue;
+        try {
+          out[i] = new Outcome(reserve(acct, account, reqs.get(i), px[i]), null);
+        } catch (RiskRejectedException ex) {
+          out[i] = new Outcome(null, ex);
+          failed = true;
+        }
+      }
+      if (atomic && failed) {
+        RiskRejectedException aborted = new RiskRejectedException(RiskReason.BATCH_REJECTED,
+            "another order in the batch was rejected");
+        for (int i = 0; i < n; i++) {
+          if (out[i] == null) {
+            out[i] = new Outcome(null, aborted);
+          } else if (out[i].reservation() != null) {
+            unreserve(acct, out[i].reservation());
+            out[i] = new Outcome(null, aborted);
+          }
+        }
+      }
+    }
+    return Arrays.asList(out);
+  }
+
+  /** Undo a reservation, e.g. on cancel. */
+  public void release(Reservation r) {
+    if (r == null) return;
+    AccountRisk acct = account(r.account());
+    synchronized (acct) {
+      unreserve(acct, r);
+    }
+  }
+
+  /**
+   * Turn a reservation into a fill: the open exposure becomes the position,
+   * BUYs are re-priced from the reserved notional to the actual cost and
+   * SELL proceeds are credited.
+   */
+  public void settle(Reservation r, double fillPrice, int qty) {
+    long actual = toCents(fillPrice * qty);
+    AccountRisk acct = account(r.account());
+    synchronized (acct) {
+      if (r.signedQty() > 0) acct.buyingPowerCents += r.notionalCents() - actual;
+      else acct.buyingPowerCents += actual;
+    }
+  }
+
+  /** Undo several reservations of one account under a single lock. */
+  public void releaseAll(String account, Collection<Reservation> rs) {
+    if (rs.isEmpty()) return;
+    AccountRisk acct = account(account);
+    synchronized (acct) {
+      for (Reservation r : rs) unreserve(acct, r);
+    }
+  }
+
+  public double buyingPower(String account) {
+    AccountRisk acct = account(account);
+    synchronized (acct) {
+      return acct.buyingPowerCents / 100.0;
+    }
+  }
+
+  /* ------------------- INTERNAL HELPERS ------------------- */
+
+  /** Stateless part: order shape, price collar and the price used for notional. */
+  private double price(CreateOrderReq req) {
+    validate(req);
+    if (!quotes.isKnown(req.symbol())) {
+      throw new RiskRejectedException(RiskReason.UNKNOWN_SYMBOL, "unknown symbol " + req.symbol());
+    }
+    double ref = quotes.last(req.symbol());
+    return switch (req.type()) {
+      case "LIMIT" -> {
+        double lp = req.limitPrice().doubleValue();
+        if (!Double.isNaN(ref) && Math.abs(lp - ref) / ref * 100.0 > collarPct) {
+          throw new RiskRejectedException(RiskReason.PRICE_COLLAR,
+              "limit " + lp + " is more than " + collarPct + "% away from last " + ref);
+        }
+        yield lp;
+      }
+      case "STOP" -> req.stopPrice().doubleValue();
+      case "STOP_LIMIT" -> req.limitPrice().doubleValue();
+      default -> {   // MARKET, TRAILING_STOP
+        if (Double.isNaN(ref)) {
+          throw new RiskRejectedException(RiskReason.NO_REFERENCE_PRICE, "no quote for " + req.symbol());
+        }
+        yield ref;
+      }
+    };
+  }
+
+  /** Stateful part; caller holds the account monitor. */
+  private Reservation reserve(AccountRisk acct, String account, CreateOrderReq req, double px) {
+    boolean buy = "BUY".equals(req.side());
+    long notional = toCents(px * req.qty());
+    long signedQty = buy ? req.qty() : -req.qty();
+    if (notional > maxOrderNotionalCents) {
+      throw new RiskRejectedException(RiskReason.MAX_ORDER_NOTIONAL,
+          "order notional exceeds " + maxOrderNotionalCents / 100.0);
+    }
+    long[] pos = acct.positions.computeIfAbsent(req.symbol(), k -> new long[1]);
+    if (Math.abs(pos[0] + signedQty) > maxPosition) {
+      throw new RiskRejectedException(RiskReason.MAX_POSITION,
+          "position in " + req.symbol() + " would exceed " + maxPosition);
+    }
+    if (buy && notional > acct.buyingPowerCents) {
+      throw new RiskRejectedException(RiskReason.INSUFFICIENT_BUYING_POWER,
+          "buying power " + acct.buyingPowerCents / 100.0 + " < " + notional / 100.0);
+    }
+    pos[0] += signedQty;
+    if (buy) acct.buyingPowerCents -= notional;
+    return new Reservation(account, req.symbol(), signedQty, buy ? notional : 0L);
+  }
+
+  private static void unreserve(AccountRisk acct, Reservation r) {
+    long[] pos = acct.positions.get(r.symbol());
+    if (pos != null) pos[0] -= r.signedQty();
+    acct.buyingPowerCents += r.notionalCents();
+  }
+
+  private AccountRisk account(String account) {
+    return accounts.computeIfAbsent(account, k -> new AccountRisk(startingBuyingPowerCents, orderBurst));
+  }
+
+  private static void validate(CreateOrderReq req) {
+    if (req == null) throw invalid("request cannot be null");
+    if (req.symbol() == null || req.symbol().isBlank()) throw invalid("symbol is required");
+    if (req.type() == null) throw invalid("type is required");
+    if (!"BUY".equals(req.side()) && !"SELL".equals(req.side())) throw invalid("side must be BUY or SELL");
+    if (req.qty() <= 0) throw invalid("qty must be positive");
+    switch (req.type()) {
+      case "MARKET" -> { }
+      case "LIMIT" -> requirePositive(req.limitPrice(), "limitPrice");
+      case "STOP" -> requirePositive(req.stopPrice(), "stopPrice");
+      case "STOP_LIMIT" -> {
+        requirePositive(req.stopPrice(), "stopPrice");
+        requirePositive(req.limitPrice(), "limitPrice");
+      }
+      case "TRAILING_STOP" -> requirePositive(req.trailAmount(), "trailAmount");
+      default -> throw invalid("type must be MARKET, LIMIT, STOP, STOP_LIMIT or TRAILING_STOP");
+    }
+  }
+
+  private static void requirePositive(BigDecimal v, String field) {
+    if (v == null || v.signum() <= 0) throw invalid(field + " must be positive for this order type");
+  }
+
+  private static RiskRejectedException invalid(String msg) {
+    return new RiskRejectedException(RiskReason.INVALID_ORDER, msg);
+  }
+
+  private static long toCents(double v) {
+    return Math.round(v * 100.0);
+  }
+
+  /** Per-account state; guarded by its own monitor. */
+  private static final class AccountRisk {
+    long buyingPowerCents;
+    final Map<String, long[]> positions = new HashMap<>();
+    double tokens;
+    long lastRefillNanos;
+
+    AccountRisk(long buyingPowerCents, double burst) {
+      this.buyingPowerCents = buyingPowerCents;
+      this.tokens = burst;
+      this.lastRefillNanos = System.nanoTime();
+    }
+
+    boolean tryAcquire(long now, double ratePerSec, double burst) {
+      tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * ratePerSec);
+      lastRefillNanos = now;
+      if (tokens < 1.0) return false;
+      tokens -= 1.0;
+      return true;
+    }
+  }
+}
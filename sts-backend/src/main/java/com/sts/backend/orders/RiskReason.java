@@ -0,0 +1,14 @@
+package com.sts.backend.orders;
+
+/** Machine-readable reasons for a pre-trade risk rejection. */
+public enum RiskReason {
+  INVALID_ORDER,
+  UNKNOWN_SYMBOL,
+  RATE_LIMITED,
+  NO_REFERENCE_PRICE,
+  PRICE_COLLAR,
+  MAX_ORDER_NOTIONAL,
+  MAX_POSITION,
+  INSUFFICIENT_BUYING_POWER,
+  BATCH_REJECTED
+}
@@ -0,0 +1,13 @@
+package com.sts.backend.orders;
+
+public class RiskRejectedException extends RuntimeException {
+
+  private final RiskReason reason;
+
+  public RiskRejectedException(RiskReason reason, String message) {
+    super(message);
+    this.reason = reason;
+  }
+
+  public RiskReason getReason() { return reason; }
+}
@@ -0,0 +1,259 @@
+package com.sts.backend.orders;
+
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * TriggerIndex — resting STOP, STOP_LIMIT and TRAILING_STOP orders, indexed
+ * per symbol by trigger price.
+ *
+ * Both sides are kept in one "fires when x <= key" orientation: sell
+ * triggers use the price as-is, buy triggers use the negated price. A tick
+ * therefore only walks the tail of a sorted map, i.e. O(log n + fired)
+ * instead of scanning every resting order.
+ *
+ * Trailing stops are grouped in buckets that share the same high-water mark.
+ * When the price makes a new high, every bucket below it collapses into one
+ * (smaller buckets are merged into the largest), so a trigger is never
+ * rewritten per order per tick. Buckets are also ordered by their highest
+ * trigger, which keeps the fire check at O(log n + fired).
+ *
+ * Fired orders are handed to the consumer registered with {@link #onFire},
+ * outside of any index lock. Every resting order holds one QuoteBook track
+ * of its symbol, released when it fires or is removed.
+ */
+@Component
+public class TriggerIndex {
+
+  private static final double TICKS = 10_000.0;
+
+  private final QuoteBook quotes;
+  private final Map<String, SymbolTriggers> bySymbol = new ConcurrentHashMap<>();
+  private final Map<Long, Resting> byOrder = new ConcurrentHashMap<>();
+  private volatile Consumer<OrderDto> onFire = o -> {};
+
+  public TriggerIndex(QuoteBook quotes) {
+    this.quotes = quotes;
+    quotes.addListener(this::onTick);
+  }
+
+  public void onFire(Consumer<OrderDto> consumer) {
+    this.onFire = consumer;
+  }
+
+  /** Rest a triggered order; trailing stops anchor on the current quote. */
+  public void add(OrderDto order) {
+    boolean buy = "BUY".equals(order.side());
+    Resting r = new Resting(order, buy);
+    byOrder.put(order.id(), r);   // before arming, so a racing tick can claim it
+    quotes.track(order.symbol());
+    SymbolTriggers st = bySymbol.computeIfAbsent(order.symbol(), k -> new SymbolTriggers());
+    synchronized (st) {
+      SideTriggers side = buy ? st.buy : st.sell;
+      if ("TRAILING_STOP".equals(order.type())) {
+        double ref = quotes.last(order.symbol());
+        long x = orient(ref, buy);
+        side.trailing.add(r, x, ticks(order.trailAmount().doubleValue()));
+      } else {
+        side.addStop(r, orient(order.stopPrice().doubleValue(), buy));
+      }
+    }
+  }
+
+  /** @return true if the order was still resting */
+  public boolean remove(long orderId) {
+    Resting r = byOrder.remove(orderId);
+    if (r == null) return false;
+    SymbolTriggers st = bySymbol.get(r.order.symbol());
+    synchronized (st) {
+      SideTriggers side = r.buy ? st.buy : st.sell;
+      if (r.bucket != null) side.trailing.remove(r);
+      else side.removeStop(r);
+    }
+    quotes.untrack(r.order.symbol());
+    return true;
+  }
+
+  /** Current trigger price of a resting order, or {@code NaN}. */
+  public double currentTrigger(long orderId) {
+    Resting r = byOrder.get(orderId);
+    if (r == null) return Double.NaN;
+    SymbolTriggers st = bySymbol.get(r.order.symbol());
+    synchronized (st) {
+      long x = r.bucket != null ? r.bucket.high - r.key : r.key;
+      return (r.buy ? -x : x) / TICKS;
+    }
+  }
+
+  public int size() {
+    return byOrder.size();
+  }
+
+  /* ------------------- TICK PATH ------------------- */
+
+  private void onTick(String symbol, double price, long ts) {
+    SymbolTriggers st = bySymbol.get(symbol);
+    if (st == null) return;
+    List<Resting> fired = new ArrayList<>();
+    synchronized (st) {
+      st.sell.onTick(orient(price, false), fired);
+      st.buy.onTick(orient(price, true), fired);
+    }
+    for (Resting r : fired) {
+      if (byOrder.remove(r.order.id()) == null) continue;   // removed concurrently
+      quotes.untrack(symbol);
+      onFire.accept(r.order);
+    }
+  }
+
+  private static long orient(double price, boolean buy) {
+    long t = ticks(price);
+    return buy ? -t : t;
+  }
+
+  private static long ticks(double price) {
+    return Math.round(price * TICKS);
+  }
+
+  /* ------------------- STRUCTURES ------------------- */
+
+  private static final class Resting {
+    final OrderDto order;
+    final boolean buy;
+    long key;             // stop: oriented trigger; trailing: trail distance in ticks
+    TrailBucket bucket;   // set for trailing stops
+
+    Resting(OrderDto order, boolean buy) {
+      this.order = order;
+      this.buy = buy;
+    }
+  }
+
+  private static final class SymbolTriggers {
+    final SideTriggers buy = new SideTriggers();
+    final SideTriggers sell = new SideTriggers();
+  }
+
+  /** One side of one symbol, in "fires when x <= key" orientation. */
+  private static final class SideTriggers {
+    final TreeMap<Long, Map<Long, Resting>> stops = new TreeMap<>();
+    final TrailingLadder trailing = new TrailingLadder();
+
+    void addStop(Resting r, long key) {
+      r.key = key;
+      stops.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(r.order.id(), r);
+    }
+
+    void removeStop(Resting r) {
+      Map<Long, Resting> level = stops.get(r.key);
+      if (level == null) return;
+      level.remove(r.order.id());
+      if (level.isEmpty()) stops.remove(r.key);
+    }
+
+    void onTick(long x, List<Resting> fired) {
+      NavigableMap<Long, Map<Long, Resting>> hit = stops.tailMap(x, true);
+      for (Map<Long, Resting> level : hit.values()) fired.addAll(level.values());
+      hit.clear();
+      trailing.onTick(x, fired);
+    }
+  }
+
+  private static final class TrailBucket {
+    long high;
+    int size;
+    final TreeMap<Long, Map<Long, Resting>> byTrail = new TreeMap<>();
+
+    long trigger() { return high - byTrail.firstKey(); }
+  }
+
+  /**
+   * Trailing stops that fire when x <= high - trail, with high the running
+   * maximum of x since each order was placed.
+   */
+  private static final class TrailingLadder {
+    final TreeMap<Long, TrailBucket> byHigh = new TreeMap<>();
+    final TreeSet<TrailBucket> byTrigger = new TreeSet<>(
+        Comparator.comparingLong(TrailBucket::trigger).thenComparingLong(b -> b.high));
+
+    void add(Resting r, long x, long trail) {
+      TrailBucket b = byHigh.get(x);
+      if (b == null) {
+        b = new TrailBucket();
+        b.high = x;
+        byHigh.put(x, b);
+      } else {
+        byTrigger.remove(b);
+      }
+      put(b, r, trail);
+      byTrigger.add(b);
+    }
+
+    void remove(Resting r) {
+      TrailBucket b = r.bucket;
+      byTrigger.remove(b);
+      Map<Long, Resting> level = b.byTrail.get(r.key);
+      level.remove(r.order.id());
+      if (level.isEmpty()) b.byTrail.remove(r.key);
+      b.size--;
+      r.bucket = null;
+      if (b.size == 0) byHigh.remove(b.high);
+      else byTrigger.add(b);
+    }
+
+    void onTick(long x, List<Resting> fired) {
+      if (byHigh.isEmpty()) return;
+
+      // 1) raise high-water marks: every bucket below x collapses into one at x
+      NavigableMap<Long, TrailBucket> below = byHigh.headMap(x, false);
+      if (!below.isEmpty()) {
+        TrailBucket into = byHigh.get(x);
+        List<TrailBucket> merging = new ArrayList<>(below.values());
+        below.clear();
+        if (into != null) {
+          byHigh.remove(x);
+          merging.add(into);
+        }
+        into = merging.get(0);
+        for (TrailBucket b : merging) if (b.size > into.size) into = b;
+        for (TrailBucket b : merging) byTrigger.remove(b);
+        for (TrailBucket b : merging) {
+          if (b == into) continue;
+          for (Map<Long, Resting> level : b.byTrail.values()) {
+            for (Resting r : level.values()) put(into, r, r.key);
+          }
+        }
+        into.high = x;
+        byHigh.put(x, into);
+        byTrigger.add(into);
+      }
+
+      // 2) fire buckets whose highest trigger has been reached
+      while (!byTrigger.isEmpty() && byTrigger.last().trigger() >= x) {
+        TrailBucket b = byTrigger.pollLast();
+        NavigableMap<Long, Map<Long, Resting>> hit = b.byTrail.headMap(b.high - x, true);
+        for (Map<Long, Resting> level : hit.values()) {
+          for (Resting r : level.values()) {
+            r.bucket = null;
+            b.size--;
+            fired.add(r);
+          }
+        }
+        hit.clear();
+        if (b.size == 0) byHigh.remove(b.high);
+        else byTrigger.add(b);
+      }
+    }
+
+    private static void put(TrailBucket b, Resting r, long trail) {
+      r.key = trail;
+      r.bucket = b;
+      b.byTrail.computeIfAbsent(trail, k -> new LinkedHashMap<>()).put(r.order.id(), r);
+      b.size++;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.sts.backend.portfolio;
+
+import com.sts.backend.api.dto.EquityPointDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EquityCurve — one account's equity over time, pre-aggregated into minute,
+ * hour and day buckets.
+ *
+ * Every sample updates the current bucket of each level (last / min / max)
+ * in O(1); nothing is kept at tick resolution. Each level is a ring of
+ * primitive arrays (an int bucket number, a double and two floats: 20
+ * bytes per bucket) allocated on first use.
+ *
+ * A query picks the finest level that still covers the range with a
+ * bounded number of buckets and thins it with largest-triangle-three-
+ * buckets (LTTB), so a one-year chart reads ~365 day buckets instead of
+ * millions of raw samples.
+ */
+final class EquityCurve {
+
+  private static final int CANDIDATES_PER_POINT = 20;
+
+  private final Level[] levels = {
+      new Level(60_000L, 3 * 24 * 60),         // 3 days of minutes
+      new Level(3_600_000L, 120 * 24),         // 120 days of hours
+      new Level(86_400_000L, 10 * 366)         // 10 years of days
+  };
+
+  synchronized void sample(long ts, double value) {
+    for (Level l : levels) l.add(ts, value);
+  }
+
+  /** Points in [from, to], thinned to at most {@code points}. */
+  synchronized List<EquityPointDTO> query(long from, long to, int points) {
+    int target = Math.max(3, points);
+    Level pick = levels[levels.length - 1];
+    for (Level l : levels) {
+      if (l.size == 0) continue;
+      boolean covers = l.size < l.cap || l.startOf(0) <= from;
+      if (covers && l.count(from, to) <= (long) target * CANDIDATES_PER_POINT) {
+        pick = l;
+        break;
+      }
+    }
+
+    int lo = pick.first(from);
+    int hi = pick.lowerBound(to + 1);
+    int n = hi - lo;
+    if (n <= 0) return List.of();
+    long[] xs = new long[n];
+    double[] ys = new double[n];
+    for (int i = 0; i < n; i++) {
+      int k = pick.slot(lo + i);
+      xs[i] = pick.bucket[k] * pick.widthMs;
+      ys[i] = pick.last[k];
+    }
+    return lttb(xs, ys, target);
+  }
+
+  /* ------------------- LTTB ------------------- */
+
+  static List<EquityPointDTO> lttb(long[] xs, double[] ys, int threshold) {
+    int n = xs.length;
+    List<EquityPointDTO> out = new ArrayList<>(Math.min(n, threshold));
+    if (threshold >= n) {
+      for (int i = 0; i < n; i++) out.add(new EquityPointDTO(xs[i], ys[i]));
+      return out;
+    }
+    double every = (double) (n - 2) / (threshold - 2);
+    int a = 0;
+    out.add(new EquityPointDTO(xs[0], ys[0]));
+    for (int i = 0; i < threshold - 2; i++) {
+      // average of the next bucket
+      int avgStart = (int) Math.floor((i + 1) * every) + 1;
+      int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+      double avgX = 0, avgY = 0;
+      for (int j = avgStart; j < avgEnd; j++) {
+        avgX += xs[j];
+        avgY += ys[j];
+      }
+      int len = avgEnd - avgStart;
+      avgX /= len;
+      avgY /= len;
+
+      // point of this bucket forming the largest triangle with a and the average
+      int rangeStart = (int) Math.floor(i * every) + 1;
+      int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+      double maxArea = -1;
+      int next = rangeStart;
+      for (int j = rangeStart; j < rangeEnd; j++) {
+        double area = Math.abs((xs[a] - avgX) * (ys[j] - ys[a]) - (xs[a] - xs[j]) * (avgY - ys[a]));
+        if (area > maxArea) {
+          maxArea = area;
+          next = j;
+        }
+      }
+      out.add(new EquityPointDTO(xs[next], ys[next]));
+      a = next;
+    }
+    out.add(new EquityPointDTO(xs[n - 1], ys[n - 1]));
+    return out;
+  }
+
+  /* ------------------- LEVEL ------------------- */
+
+  private static final class Level {
+    final long widthMs;
+    final int cap;
+    int[] bucket;
+    double[] last;
+    float[] min;
+    float[] max;
+    int head = -1;   // slot of the newest bucket
+    int size;
+
+    Level(long widthMs, int cap) {
+      this.widthMs = widthMs;
+      this.cap = cap;
+    }
+
+    void add(long ts, double v) {
+      int b = (int) (ts / widthMs);
+      if (size > 0) {
+        if (b < bucket[head]) return;   // late sample, already rolled past it
+        if (b == bucket[head]) {
+          last[head] = v;
+          min[head] = Math.min(min[head], (float) v);
+          max[head] = Math.max(max[head], (float) v);
+          return;
+        }
+      } else if (bucket == null) {
+        bucket = new int[cap];
+        last = new double[cap];
+        min = new float[cap];
+        max = new float[cap];
+      }
+      head = (head + 1) % cap;
+      bucket[head] = b;
+      last[head] = v;
+      min[head] = (float) v;
+      max[head] = (float) v;
+      if (size < cap) size++;
+    }
+
+    /** Ring slot of the i-th oldest bucket. */
+    int slot(int i) {
+      return (head - size + 1 + i + cap) % cap;
+    }
+
+    long startOf(int i) {
+      return bucket[slot(i)] * widthMs;
+    }
+
+    /** First logical index whose bucket starts at or after {@code ts}. */
+    int lowerBound(long ts) {
+      int lo = 0, hi = size;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (startOf(mid) < ts) lo = mid + 1;
+        else hi = mid;
+      }
+      return lo;
+    }
+
+    /** First logical index whose bucket contains or follows {@code ts}. */
+    int first(long ts) {
+      return lowerBound(ts - widthMs + 1);
+    }
+
+    long count(long from, long to) {
+      return lowerBound(to + 1) - first(from);
+    }
+  }
+}
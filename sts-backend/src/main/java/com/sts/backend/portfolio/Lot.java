@@ -0,0 +1,31 @@
+package com.sts.backend.portfolio;
+
+/**
+ * Lot — signed quantity and average cost of one instrument, with the
+ * realized-PnL arithmetic shared by live portfolios and backtests.
+ */
+public class Lot {
+
+  long qty;             // signed: negative = short
+  double avgCost;
+
+  public long qty() { return qty; }
+
+  public double avgCost() { return avgCost; }
+
+  /** Apply a signed trade; @return realized PnL of the closed part. */
+  public double trade(long dq, double px) {
+    if (qty == 0 || Long.signum(qty) == Long.signum(dq)) {
+      double n = Math.abs(qty) + Math.abs(dq);
+      avgCost = (Math.abs(qty) * avgCost + Math.abs(dq) * px) / n;
+      qty += dq;
+      return 0.0;
+    }
+    long closed = Math.min(Math.abs(qty), Math.abs(dq));
+    double realized = closed * (px - avgCost) * Long.signum(qty);
+    qty += dq;
+    if (qty == 0) avgCost = 0.0;
+    else if (Long.signum(qty) == Long.signum(dq)) avgCost = px;   // flipped through zero
+    return realized;
+  }
+}
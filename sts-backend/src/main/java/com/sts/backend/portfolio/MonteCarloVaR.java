@@ -0,0 +1,145 @@
+package com.sts.backend.portfolio;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * MonteCarloVaR — simulated one-horizon PnL of a set of dollar exposures
+ * under correlated log-normal returns.
+ *
+ * Paths are generated in fixed-size chunks on a ForkJoin pool. Every chunk
+ * draws from its own {@link SplittableRandom} seeded from (seed, chunk
+ * index), so the result depends only on the seed and path count — not on
+ * the number of threads or how the work was stolen. Each leaf task reuses
+ * one scratch array and writes straight into one shared {@code double[]}.
+ */
+public final class MonteCarloVaR {
+
+  static final int CHUNK = 4096;
+
+  private MonteCarloVaR() {}
+
+  /**
+   * Lower Cholesky factor of a covariance matrix, row-major n×n. Adds a
+   * growing ridge to the diagonal until the matrix factors (estimated
+   * covariances are not always positive definite).
+   */
+  public static double[] cholesky(double[][] cov) {
+    int n = cov.length;
+    double trace = 0;
+    for (int i = 0; i < n; i++) trace += cov[i][i];
+    double ridge = 0;
+    for (int attempt = 0; attempt < 12; attempt++) {
+      double[] l = tryFactor(cov, ridge);
+      if (l != null) return l;
+      ridge = ridge == 0 ? Math.max(1e-12, 1e-10 * trace / Math.max(1, n)) : ridge * 10;
+    }
+    // give up on correlation: independent factors
+    double[] l = new double[n * n];
+    for (int i = 0; i < n; i++) l[i * n + i] = Math.sqrt(Math.max(0, cov[i][i]));
+    return l;
+  }
+
+  private static double[] tryFactor(double[][] a, double ridge) {
+    int n = a.length;
+    double[] l = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j <= i; j++) {
+        double s = a[i][j] + (i == j ? ridge : 0);
+        for (int k = 0; k < j; k++) s -= l[i * n + k] * l[j * n + k];
+        if (i == j) {
+          if (!(s > 0)) {
+            if (s == 0 && a[i][i] == 0) continue;   // zero-variance asset
+            return null;
+          }
+          l[i * n + i] = Math.sqrt(s);
+        } else {
+          double d = l[j * n + j];
+          l[i * n + j] = d == 0 ? 0 : s / d;
+        }
+      }
+    }
+    return l;
+  }
+
+  /**
+   * Simulated PnL per path, sorted ascending (worst first).
+   *
+   * @param exposure dollar value held per asset (negative = short)
+   * @param chol     lower Cholesky factor of the horizon covariance, row-major
+   */
+  public static double[] simulate(double[] exposure, double[] chol, int paths, long seed, ForkJoinPool pool) {
+    double[] pnl = new double[paths];
+    int chunks = (paths + CHUNK - 1) / CHUNK;
+    pool.invoke(new Chunks(exposure, chol, pnl, seed, 0, chunks));
+    Arrays.parallelSort(pnl);
+    return pnl;
+  }
+
+  /** Loss not exceeded with probability {@code confidence}, as a positive number. */
+  public static double valueAtRisk(double[] sortedPnl, double confidence) {
+    return Math.max(0, -sortedPnl[tailCount(sortedPnl.length, confidence) - 1]);
+  }
+
+  /** Mean loss in the tail beyond the VaR, as a positive number. */
+  public static double expectedShortfall(double[] sortedPnl, double confidence) {
+    int k = tailCount(sortedPnl.length, confidence);
+    double sum = 0;
+    for (int i = 0; i < k; i++) sum += sortedPnl[i];
+    return Math.max(0, -sum / k);
+  }
+
+  private static int tailCount(int n, double confidence) {
+    return Math.max(1, (int) Math.ceil(n * (1.0 - confidence)));
+  }
+
+  private static final class Chunks extends RecursiveAction {
+    final double[] exposure, chol, pnl;
+    final long seed;
+    final int lo, hi;
+
+    Chunks(double[] exposure, double[] chol, double[] pnl, long seed, int lo, int hi) {
+      this.exposure = exposure;
+      this.chol = chol;
+      this.pnl = pnl;
+      this.seed = seed;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo > 1) {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new Chunks(exposure, chol, pnl, seed, lo, mid),
+                  new Chunks(exposure, chol, pnl, seed, mid, hi));
+        return;
+      }
+      int n = exposure.length;
+      double[] z = new double[n];
+      SplittableRandom rnd = new SplittableRandom(mix(seed, lo));
+      int from = lo * CHUNK;
+      int to = Math.min(pnl.length, from + CHUNK);
+      for (int p = from; p < to; p++) {
+        for (int i = 0; i < n; i++) z[i] = rnd.nextGaussian();
+        double v = 0;
+        for (int i = 0; i < n; i++) {
+          double r = 0;
+          int row = i * n;
+          for (int k = 0; k <= i; k++) r += chol[row + k] * z[k];
+          v += exposure[i] * Math.expm1(r);
+        }
+        pnl[p] = v;
+      }
+    }
+  }
+
+  private static long mix(long seed, int chunk) {
+    long z = seed + 0x9E3779B97F4A7C15L * (chunk + 1L);
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
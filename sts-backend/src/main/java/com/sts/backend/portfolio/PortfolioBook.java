@@ -0,0 +1,230 @@
+package com.sts.backend.portfolio;
+
+import com.sts.backend.api.dto.EquityPointDTO;
+import com.sts.backend.api.dto.HoldingDTO;
+import com.sts.backend.api.dto.PortfolioStatsDTO;
+import com.sts.backend.orders.Fill;
+import com.sts.backend.orders.OrderService;
+import com.sts.backend.quotes.QuoteBook;
+import com.sts.backend.ws.QuoteWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PortfolioBook — positions built from fills and marked to market on every
+ * quote tick.
+ *
+ * A symbol → holders index means a tick only visits the positions in that
+ * symbol, and each visit is O(1): the position's market value and the
+ * account's aggregates are moved by qty × (new − previous price). Accounts
+ * touched during a tick get one PORTFOLIO frame at the end of that tick,
+ * and /api/portfolio/stats is a plain read of the aggregates.
+ *
+ * Day PnL is measured against the total PnL at the first tick of the UTC day.
+ * Equity (starting capital + total PnL) is sampled into each flushed
+ * account's {@link EquityCurve}.
+ */
+@Component
+public class PortfolioBook {
+
+  private final QuoteBook quotes;
+  private final QuoteWebSocketHandler ws;
+  private final double startingCapital;
+
+  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+  private final Map<String, Set<Position>> holders = new ConcurrentHashMap<>();
+  private final Set<Account> dirty = ConcurrentHashMap.newKeySet();
+
+  public PortfolioBook(QuoteBook quotes, OrderService orders, QuoteWebSocketHandler ws,
+                       @Value("${orders.risk.starting-buying-power:100000}") double startingCapital) {
+    this.quotes = quotes;
+    this.ws = ws;
+    this.startingCapital = startingCapital;
+    orders.addFillListener(this::apply);
+    for (Fill f : orders.fills()) apply(f);
+    quotes.addListener(this::onTick);
+    quotes.addTickEndListener(this::flush);
+  }
+
+  public List<HoldingDTO> holdings(String account) {
+    Account a = accounts.get(account);
+    if (a == null) return List.of();
+    List<HoldingDTO> out = new ArrayList<>();
+    synchronized (a) {
+      for (Position p : a.positions.values()) {
+        if (p.qty != 0) out.add(new HoldingDTO(p.symbol, (int) p.qty, round2(p.avgCost)));
+      }
+    }
+    return out;
+  }
+
+  public PortfolioStatsDTO stats(String account) {
+    Account a = accounts.get(account);
+    if (a == null) return new PortfolioStatsDTO(0, 0, 0);
+    synchronized (a) {
+      double total = a.realized + a.marketValue - a.costBasis;
+      return new PortfolioStatsDTO(round2(a.marketValue), round2(total - a.dayStartPnl), round2(total));
+    }
+  }
+
+  /** Equity history in [from, to], downsampled to at most {@code points}. */
+  public List<EquityPointDTO> equity(String account, long from, long to, int points) {
+    Account a = accounts.get(account);
+    if (a == null) return List.of();
+    return a.curve.query(from, to, points);
+  }
+
+  /** Open positions as dollar exposures at the last mark, with the fill version they reflect. */
+  Exposure exposure(String account) {
+    Account a = accounts.get(account);
+    if (a == null) return new Exposure(0, new String[0], new double[0]);
+    synchronized (a) {
+      int n = 0;
+      for (Position p : a.positions.values()) if (p.qty != 0) n++;
+      String[] symbols = new String[n];
+      double[] values = new double[n];
+      int i = 0;
+      for (Position p : a.positions.values()) {
+        if (p.qty == 0) continue;
+        symbols[i] = p.symbol;
+        values[i++] = p.qty * p.lastPx;
+      }
+      return new Exposure(a.version, symbols, values);
+    }
+  }
+
+  record Exposure(long version, String[] symbols, double[] values) {}
+
+  /* ------------------- FILLS ------------------- */
+
+  private void apply(Fill f) {
+    Account a = accounts.computeIfAbsent(f.account(), Account::new);
+    double last = quotes.last(f.symbol());
+    double mark = Double.isNaN(last) ? f.price() : last;
+    synchronized (a) {
+      Position p = a.positions.get(f.symbol());
+      if (p == null) {
+        p = new Position(a, f.symbol());
+        p.lastPx = mark;
+        a.positions.put(f.symbol(), p);
+        holders.computeIfAbsent(f.symbol(), k -> ConcurrentHashMap.newKeySet()).add(p);
+      }
+      // take the position out of the aggregates, trade it, put it back
+      a.marketValue -= p.qty * p.lastPx;
+      a.costBasis -= p.qty * p.avgCost;
+      boolean wasFlat = p.qty == 0;
+      a.realized += p.trade(f.signedQty(), f.price());
+      p.lastPx = mark;
+      a.marketValue += p.qty * p.lastPx;
+      a.costBasis += p.qty * p.avgCost;
+      a.version++;
+      // one track per open position, taken and released under the account lock so they stay paired
+      if (wasFlat && p.qty != 0) quotes.track(f.symbol());
+      else if (!wasFlat && p.qty == 0) quotes.untrack(f.symbol());
+    }
+    dirty.add(a);
+  }
+
+  /* ------------------- TICKS ------------------- */
+
+  private void onTick(String symbol, double price, long ts) {
+    Set<Position> hs = holders.get(symbol);
+    if (hs == null) return;
+    long day = ts / 86_400_000L;   // UTC epoch day
+    for (Position p : hs) {
+      Account a = p.account;
+      synchronized (a) {
+        if (a.day != day) {
+          a.day = day;
+          a.dayStartPnl = a.realized + a.marketValue - a.costBasis;
+        }
+        a.marketValue += p.qty * (price - p.lastPx);
+        p.lastPx = price;
+      }
+      if (p.qty != 0) dirty.add(a);
+    }
+  }
+
+  /** End of tick: one PORTFOLIO frame per touched account. */
+  private void flush(long ts) {
+    if (dirty.isEmpty()) return;
+    for (Iterator<Account> it = dirty.iterator(); it.hasNext(); ) {
+      Account a = it.next();
+      it.remove();
+      double equity;
+      synchronized (a) {
+        equity = startingCapital + a.realized + a.marketValue - a.costBasis;
+      }
+      a.curve.sample(ts, equity);
+      ws.sendToUser(a.id, frame(a, ts));
+    }
+  }
+
+  private String frame(Account a, long ts) {
+    StringBuilder sb = new StringBuilder(256);
+    synchronized (a) {
+      double total = a.realized + a.marketValue - a.costBasis;
+      sb.append("{\"type\":\"PORTFOLIO\",\"totalValue\":").append(fmt(a.marketValue))
+          .append(",\"dayPnl\":").append(fmt(total - a.dayStartPnl))
+          .append(",\"totalPnl\":").append(fmt(total))
+          .append(",\"positions\":[");
+      boolean first = true;
+      for (Position p : a.positions.values()) {
+        if (p.qty == 0) continue;
+        if (!first) sb.append(',');
+        first = false;
+        double mv = p.qty * p.lastPx;
+        sb.append("{\"symbol\":\"").append(p.symbol)
+            .append("\",\"qty\":").append(p.qty)
+            .append(",\"avgPrice\":").append(fmt(p.avgCost))
+            .append(",\"price\":").append(fmt(p.lastPx))
+            .append(",\"marketValue\":").append(fmt(mv))
+            .append(",\"unrealizedPnl\":").append(fmt(mv - p.qty * p.avgCost))
+            .append('}');
+      }
+      sb.append("],\"ts\":").append(ts).append('}');
+    }
+    return sb.toString();
+  }
+
+  private static String fmt(double v) {
+    return String.format(Locale.US, "%.2f", v);
+  }
+
+  private static double round2(double v) {
+    return Math.round(v * 100.0) / 100.0;
+  }
+
+  /* ------------------- STATE ------------------- */
+
+  /** Per-account aggregates; guarded by the account's monitor. */
+  static final class Account {
+    final String id;
+    final Map<String, Position> positions = new LinkedHashMap<>();
+    double marketValue;   // Σ qty × last
+    double costBasis;     // Σ qty × avgCost
+    double realized;
+    double dayStartPnl;
+    long day = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+    long version;         // bumped on every fill
+    final EquityCurve curve = new EquityCurve();
+
+    Account(String id) { this.id = id; }
+  }
+
+  static final class Position extends Lot {
+    final Account account;
+    final String symbol;
+    double lastPx;
+
+    Position(Account account, String symbol) {
+      this.account = account;
+      this.symbol = symbol;
+    }
+  }
+}
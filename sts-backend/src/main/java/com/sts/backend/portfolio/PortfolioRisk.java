@@ -0,0 +1,99 @@
+package com.sts.backend.portfolio;
+
+import com.sts.backend.api.dto.PortfolioRiskDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * PortfolioRisk — Monte Carlo VaR and expected shortfall of an account's
+ * open positions over one horizon (a trading session by default).
+ *
+ * Exposures come from {@link PortfolioBook}, the return covariance from
+ * {@link ReturnHistory}; the simulation runs on a dedicated ForkJoin pool so
+ * it never competes with the common pool used by request handling. Results
+ * are cached per account and reused while the portfolio version (bumped on
+ * every fill) and path count are unchanged and the entry is younger than
+ * the TTL, since marks and return estimates keep moving between fills.
+ */
+@Component
+public class PortfolioRisk {
+
+  private final PortfolioBook book;
+  private final ReturnHistory history;
+  private final ForkJoinPool pool;
+  private final int defaultPaths;
+  private final int maxPaths;
+  private final long seed;
+  private final long horizonMs;
+  private final int minSamples;
+  private final long cacheTtlMs;
+
+  private final Map<String, PortfolioRiskDTO> cache = new ConcurrentHashMap<>();
+
+  public PortfolioRisk(
+      PortfolioBook book,
+      ReturnHistory history,
+      @Value("${portfolio.risk.paths:20000}") int defaultPaths,
+      @Value("${portfolio.risk.max-paths:500000}") int maxPaths,
+      @Value("${portfolio.risk.threads:0}") int threads,
+      @Value("${portfolio.risk.seed:42}") long seed,
+      @Value("${portfolio.risk.horizon-ms:23400000}") long horizonMs,
+      @Value("${portfolio.risk.min-samples:30}") int minSamples,
+      @Value("${portfolio.risk.cache-ttl-ms:10000}") long cacheTtlMs
+  ) {
+    this.book = book;
+    this.history = history;
+    this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    this.defaultPaths = defaultPaths;
+    this.maxPaths = maxPaths;
+    this.seed = seed;
+    this.horizonMs = horizonMs;
+    this.minSamples = Math.max(2, minSamples);
+    this.cacheTtlMs = cacheTtlMs;
+  }
+
+  public PortfolioRiskDTO risk(String account, Integer requestedPaths) {
+    int paths = requestedPaths == null ? defaultPaths : Math.min(Math.max(requestedPaths, 1000), maxPaths);
+    PortfolioBook.Exposure ex = book.exposure(account);
+    long now = System.currentTimeMillis();
+
+    PortfolioRiskDTO hit = cache.get(account);
+    if (hit != null && hit.version() == ex.version() && hit.paths() == paths
+        && now - hit.computedAt() < cacheTtlMs) {
+      return hit;
+    }
+
+    double total = 0;
+    for (double v : ex.values()) total += v;
+    if (ex.symbols().length == 0) {
+      return new PortfolioRiskDTO(ex.version(), 0, paths, horizonMs, 0, 0, 0, 0, now, 0);
+    }
+
+    double[][] cov = history.covariance(ex.symbols(), horizonMs, minSamples);
+    if (cov == null) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Not enough price history yet");
+    }
+
+    long t0 = System.nanoTime();
+    double[] pnl = MonteCarloVaR.simulate(ex.values(), MonteCarloVaR.cholesky(cov), paths, seed, pool);
+    long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+
+    PortfolioRiskDTO out = new PortfolioRiskDTO(
+        ex.version(), round2(total), paths, horizonMs,
+        round2(MonteCarloVaR.valueAtRisk(pnl, 0.95)), round2(MonteCarloVaR.expectedShortfall(pnl, 0.95)),
+        round2(MonteCarloVaR.valueAtRisk(pnl, 0.99)), round2(MonteCarloVaR.expectedShortfall(pnl, 0.99)),
+        now, elapsedMs);
+    cache.put(account, out);
+    return out;
+  }
+
+  private static double round2(double v) {
+    return Math.round(v * 100.0) / 100.0;
+  }
+}
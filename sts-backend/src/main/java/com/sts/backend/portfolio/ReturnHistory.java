@@ -0,0 +1,152 @@
+package com.sts.backend.portfolio;
+
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReturnHistory — the last N tick log-returns of every symbol the streamer
+ * prices, kept in per-symbol primitive rings.
+ *
+ * The streamer stamps every symbol of a tick with the same timestamp, so two
+ * symbols' returns are paired by timestamp when estimating covariance.
+ * Estimates are scaled from per-tick to the requested horizon by the mean
+ * tick interval (square-root-of-time).
+ */
+@Component
+public class ReturnHistory {
+
+  private final int window;
+  private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+  public ReturnHistory(QuoteBook quotes, @Value("${portfolio.risk.window:1024}") int window) {
+    this.window = Math.max(16, window);
+    quotes.addListener(this::onTick);
+  }
+
+  private void onTick(String symbol, double price, long ts) {
+    if (!(price > 0)) return;
+    series.computeIfAbsent(symbol, k -> new Series(window)).add(price, ts);
+  }
+
+  /** Number of returns currently held for the symbol. */
+  public int samples(String symbol) {
+    Series s = series.get(symbol);
+    if (s == null) return 0;
+    synchronized (s) {
+      return s.size;
+    }
+  }
+
+  /**
+   * Covariance of log returns over {@code horizonMs}, or {@code null} when a
+   * symbol has fewer than {@code minSamples} returns. Pairs with less than
+   * {@code minSamples} common timestamps are treated as uncorrelated.
+   */
+  public double[][] covariance(String[] symbols, long horizonMs, int minSamples) {
+    int n = symbols.length;
+    long[][] ts = new long[n][];
+    double[][] rs = new double[n][];
+    long span = 0, intervals = 0;
+    for (int i = 0; i < n; i++) {
+      Series s = series.get(symbols[i]);
+      if (s == null) return null;
+      synchronized (s) {
+        if (s.size < minSamples) return null;
+        ts[i] = s.copyTs();
+        rs[i] = s.copyReturns();
+      }
+      span += ts[i][ts[i].length - 1] - ts[i][0];
+      intervals += ts[i].length - 1;
+    }
+    double tickMs = intervals == 0 ? 1000.0 : Math.max(1.0, (double) span / intervals);
+    double scale = horizonMs / tickMs;
+
+    double[][] cov = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      cov[i][i] = variance(rs[i]) * scale;
+      for (int j = 0; j < i; j++) {
+        double c = aligned(ts[i], rs[i], ts[j], rs[j], minSamples) * scale;
+        cov[i][j] = c;
+        cov[j][i] = c;
+      }
+    }
+    return cov;
+  }
+
+  private static double variance(double[] r) {
+    double mean = 0;
+    for (double v : r) mean += v;
+    mean /= r.length;
+    double acc = 0;
+    for (double v : r) acc += (v - mean) * (v - mean);
+    return acc / (r.length - 1);
+  }
+
+  /** Sample covariance over timestamps present in both series (both ascending). */
+  private static double aligned(long[] ta, double[] ra, long[] tb, double[] rb, int minSamples) {
+    int i = 0, j = 0, k = 0;
+    double sa = 0, sb = 0, sab = 0;
+    while (i < ta.length && j < tb.length) {
+      if (ta[i] < tb[j]) i++;
+      else if (ta[i] > tb[j]) j++;
+      else {
+        sa += ra[i];
+        sb += rb[j];
+        sab += ra[i] * rb[j];
+        k++;
+        i++;
+        j++;
+      }
+    }
+    if (k < minSamples) return 0.0;
+    return (sab - sa * sb / k) / (k - 1);
+  }
+
+  /** Ring of (timestamp, log return); guarded by its own monitor. */
+  private static final class Series {
+    final long[] ts;
+    final double[] r;
+    int head;       // next write slot
+    int size;
+    double lastPx = Double.NaN;
+    long lastTs;
+
+    Series(int capacity) {
+      ts = new long[capacity];
+      r = new double[capacity];
+    }
+
+    synchronized void add(double px, long t) {
+      if (t <= lastTs) {          // re-publish within the same tick (snapshot)
+        if (t == lastTs) lastPx = px;
+        return;
+      }
+      if (!Double.isNaN(lastPx)) {
+        ts[head] = t;
+        r[head] = Math.log(px / lastPx);
+        head = (head + 1) % ts.length;
+        if (size < ts.length) size++;
+      }
+      lastPx = px;
+      lastTs = t;
+    }
+
+    long[] copyTs() {
+      long[] out = new long[size];
+      int start = (head - size + ts.length) % ts.length;
+      for (int k = 0; k < size; k++) out[k] = ts[(start + k) % ts.length];
+      return out;
+    }
+
+    double[] copyReturns() {
+      double[] out = new double[size];
+      int start = (head - size + r.length) % r.length;
+      for (int k = 0; k < size; k++) out[k] = r[(start + k) % r.length];
+      return out;
+    }
+  }
+}
@@ -23,7 +23,7 @@ public class MoversController {
       }
     }
     if (list.isEmpty()) list = List.of("AAPL","TSLA","GOOGL","MSFT","NVDA","AMZN");
-    Map<String, Map<String,Object>> q = svc.initial(list);
+    Map<String, Map<String,Object>> q = svc.initial(list, ReferencePrices.Basis.of(tf));
     List<Map<String,Object>> arr = new ArrayList<>();
     for (String s : list) {
       Map<String,Object> m = q.get(s);
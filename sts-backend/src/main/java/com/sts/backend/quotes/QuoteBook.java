@@ -0,0 +1,115 @@
+package com.sts.backend.quotes;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * QuoteBook — latest known price per symbol, shared by the quote stream and
+ * the order path.
+ *
+ * The streamer publishes every tick here; readers (risk checks, order
+ * handling) get a lock-free read of the last price without touching the
+ * upstream provider. Server-side consumers register a {@link TickListener}
+ * and are called synchronously on every published price, and can
+ * {@link #track} symbols they need ticks for even when no client is
+ * subscribed to them; tracking is reference-counted, so {@link #untrack}
+ * stops a symbol only once every holder has let it go.
+ *
+ * {@link #isKnown} is the symbol universe (quotes.universe) that
+ * user-supplied symbols are checked against before anything is tracked.
+ */
+@Component
+public class QuoteBook {
+
+  public record Quote(String symbol, double price, long ts) {}
+
+  @FunctionalInterface
+  public interface TickListener {
+    void onTick(String symbol, double price, long ts);
+  }
+
+  private final Map<String, Quote> quotes = new ConcurrentHashMap<>();
+  private final Map<String, Integer> tracked = new ConcurrentHashMap<>();
+  private final Set<String> universe = new HashSet<>();
+  private final List<TickListener> listeners = new CopyOnWriteArrayList<>();
+  private final List<LongConsumer> tickEndListeners = new CopyOnWriteArrayList<>();
+
+  public QuoteBook(
+      @Value("${quotes.universe:AAPL,MSFT,GOOGL,GOOG,AMZN,NVDA,META,TSLA,AVGO,AMD,INTC,NFLX,ADBE,CRM,ORCL,"
+          + "QCOM,CSCO,IBM,JPM,BAC,GS,MS,V,MA,WMT,COST,KO,PEP,DIS,XOM,CVX,UNH,JNJ,PFE,SPY,QQQ,DIA,IWM}") String universe
+  ) {
+    for (String s : universe.split(",")) {
+      if (!s.isBlank()) this.universe.add(s.trim().toUpperCase());
+    }
+  }
+
+  public void update(String symbol, double price, long ts) {
+    quotes.put(symbol, new Quote(symbol, price, ts));
+    for (TickListener l : listeners) {
+      try {
+        l.onTick(symbol, price, ts);
+      } catch (RuntimeException ignored) {
+        // a failing listener must not stop the tick loop
+      }
+    }
+  }
+
+  /** Last price for the symbol, or {@code NaN} if nothing has been seen yet. */
+  public double last(String symbol) {
+    Quote q = quotes.get(symbol);
+    return q == null ? Double.NaN : q.price();
+  }
+
+  public Quote get(String symbol) {
+    return quotes.get(symbol);
+  }
+
+  public void addListener(TickListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Called by the streamer once every symbol of a tick has been published, so
+   * consumers can flush per-tick work (e.g. one push per user per tick).
+   */
+  public void endOfTick(long ts) {
+    for (LongConsumer l : tickEndListeners) {
+      try {
+        l.accept(ts);
+      } catch (RuntimeException ignored) {
+        // same as above
+      }
+    }
+  }
+
+  public void addTickEndListener(LongConsumer listener) {
+    tickEndListeners.add(listener);
+  }
+
+  /** Ask the streamer to keep ticking a symbol regardless of client subscriptions. */
+  public void track(String symbol) {
+    tracked.merge(symbol, 1, Integer::sum);
+  }
+
+  /** Drop one {@link #track} of the symbol; it stops being tracked when none are left. */
+  public void untrack(String symbol) {
+    tracked.computeIfPresent(symbol, (k, n) -> n <= 1 ? null : n - 1);
+  }
+
+  public Set<String> tracked() {
+    return tracked.keySet();
+  }
+
+  /** Whether the symbol is in the configured universe of tradeable symbols. */
+  public boolean isKnown(String symbol) {
+    return symbol != null && universe.contains(symbol);
+  }
+}
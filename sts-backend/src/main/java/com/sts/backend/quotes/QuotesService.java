@@ -12,24 +12,39 @@ public class QuotesService {
   private final String provider;
   private final String alphaKey;
   private final RestTemplate http = new RestTemplate();
+  private final QuoteBook quoteBook;
+  private final ReferencePrices refs;
 
   public QuotesService(
       @Value("${quotes.provider:mock}") String provider,
-      @Value("${quotes.alpha.api-key:}") String alphaKey
+      @Value("${quotes.alpha.api-key:}") String alphaKey,
+      QuoteBook quoteBook,
+      ReferencePrices refs
   ) {
     this.provider = provider;
     this.alphaKey = alphaKey;
+    this.quoteBook = quoteBook;
+    this.refs = refs;
   }
 
   public Map<String, Map<String,Object>> initial(List<String> symbols) {
+    return initial(symbols, ReferencePrices.Basis.PREV_CLOSE);
+  }
+
+  /**
+   * Last streamed price when the symbol is live (so REST and WS agree), the
+   * provider price otherwise; change is against the shared reference store.
+   */
+  public Map<String, Map<String,Object>> initial(List<String> symbols, ReferencePrices.Basis basis) {
     Map<String, Map<String,Object>> out = new LinkedHashMap<>();
     long now = System.currentTimeMillis();
     for (String s : symbols) {
-      double price = "alpha".equalsIgnoreCase(provider) ? alphaPrice(s) : mockPrice(s);
+      QuoteBook.Quote q = quoteBook.get(s);
+      double price = q != null ? q.price() : "alpha".equalsIgnoreCase(provider) ? alphaPrice(s) : mockPrice(s);
       out.put(s, Map.of(
           "price", round2(price),
-          "changePct", round2((price - base(s)) / base(s) * 100.0),
-          "ts", now
+          "changePct", round2(refs.changePct(s, price, basis)),
+          "ts", q != null ? q.ts() : now
       ));
     }
     return out;
@@ -54,7 +69,6 @@ public class QuotesService {
     return 50.0 + (h % 200);
   }
 
-  private double base(String sym) { return 50.0 + (Math.abs(sym.hashCode()) % 200); }
   private double round2(double v) { return Math.round(v * 100.0) / 100.0; }
 }
 
@@ -0,0 +1,179 @@
+package com.sts.backend.quotes;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ReferencePrices — previous close, session open and week-ago close per
+ * symbol, the bases every changePct is computed against.
+ *
+ * Fed from the QuoteBook tick stream. The session calendar (zone, open and
+ * close times, weekdays only) is computed once per session, so a tick only
+ * compares its timestamp with the next open; a symbol's references roll
+ * over on its first tick of a new session. The close of a session is the
+ * last price seen at or before the closing time.
+ *
+ * Readers get an immutable {@link Refs} through a volatile field: no locks
+ * and no recomputation per request.
+ */
+@Component
+public class ReferencePrices {
+
+  public enum Basis {
+    PREV_CLOSE, SESSION_OPEN, WEEK_AGO;
+
+    /** 1D → previous close, 1W → week-ago close, OPEN → session open. */
+    public static Basis of(String tf) {
+      if (tf == null) return PREV_CLOSE;
+      return switch (tf.trim().toUpperCase()) {
+        case "1W" -> WEEK_AGO;
+        case "OPEN" -> SESSION_OPEN;
+        default -> PREV_CLOSE;
+      };
+    }
+  }
+
+  public record Refs(double prevClose, double sessionOpen, double weekAgoClose, LocalDate session) {
+    public double of(Basis b) {
+      return switch (b) {
+        case PREV_CLOSE -> prevClose;
+        case SESSION_OPEN -> sessionOpen;
+        case WEEK_AGO -> weekAgoClose;
+      };
+    }
+  }
+
+  /** Sessions of history behind the week-ago close. */
+  private static final int WEEK = 5;
+
+  private final ZoneId zone;
+  private final LocalTime open;
+  private final LocalTime close;
+  private final Map<String, Sym> symbols = new ConcurrentHashMap<>();
+  private volatile Session session;
+
+  public ReferencePrices(
+      QuoteBook quotes,
+      @Value("${quotes.session.zone:America/New_York}") String zone,
+      @Value("${quotes.session.open:09:30}") String open,
+      @Value("${quotes.session.close:16:00}") String close
+  ) {
+    this.zone = ZoneId.of(zone);
+    this.open = LocalTime.parse(open);
+    this.close = LocalTime.parse(close);
+    this.session = sessionAt(System.currentTimeMillis());
+    quotes.addListener(this::onTick);
+  }
+
+  /** References for the symbol, or {@code null} before its first tick. */
+  public Refs get(String symbol) {
+    Sym s = symbols.get(symbol);
+    return s == null ? null : s.refs;
+  }
+
+  /** Percent change of {@code price} against the basis; 0 when nothing is known yet. */
+  public double changePct(String symbol, double price, Basis basis) {
+    Refs r = get(symbol);
+    if (r == null) return 0.0;
+    double base = r.of(basis);
+    return base > 0 ? (price - base) / base * 100.0 : 0.0;
+  }
+
+  /**
+   * Previous close reported by an upstream provider. Used until this store
+   * has seen a session close of its own.
+   */
+  public void seedPrevClose(String symbol, double prevClose) {
+    if (!(prevClose > 0)) return;
+    Sym s = symbols.computeIfAbsent(symbol, k -> new Sym());
+    synchronized (s) {
+      if (s.closes > 0) return;
+      Refs r = s.refs;
+      if (r == null) s.seed = prevClose;   // applied on the first tick
+      else s.refs = new Refs(prevClose, r.sessionOpen(), prevClose, r.session());
+    }
+  }
+
+  /* ------------------- TICKS ------------------- */
+
+  private void onTick(String symbol, double price, long ts) {
+    if (!(price > 0)) return;
+    Session c = session;
+    if (ts >= c.nextOpenMs) c = roll(ts);
+    else if (ts < c.openMs) c = sessionAt(ts);   // out-of-order stamp from before the current session
+
+    Sym s = symbols.computeIfAbsent(symbol, k -> new Sym());
+    synchronized (s) {
+      if (s.refs == null) {
+        double prev = s.seed > 0 ? s.seed : price;
+        s.refs = new Refs(prev, price, prev, c.date);
+        s.sessionClose = price;
+        return;
+      }
+      if (c.date.isAfter(s.refs.session())) {
+        double prevClose = s.sessionClose;
+        s.pushClose(prevClose);
+        s.refs = new Refs(prevClose, price, s.weekAgo(), c.date);
+        s.sessionClose = price;
+      } else if (c.date.equals(s.refs.session()) && ts <= c.closeMs) {
+        s.sessionClose = price;
+      }
+    }
+  }
+
+  private synchronized Session roll(long ts) {
+    Session c = session;
+    if (ts >= c.nextOpenMs) {
+      c = sessionAt(ts);
+      session = c;
+    }
+    return c;
+  }
+
+  /** The trading session in effect at {@code ts}: the latest weekday whose open is at or before it. */
+  private Session sessionAt(long ts) {
+    ZonedDateTime now = Instant.ofEpochMilli(ts).atZone(zone);
+    LocalDate d = now.toLocalDate();
+    if (now.toLocalTime().isBefore(open)) d = d.minusDays(1);
+    while (isWeekend(d)) d = d.minusDays(1);
+    LocalDate next = d.plusDays(1);
+    while (isWeekend(next)) next = next.plusDays(1);
+    return new Session(d, millis(d, open), millis(d, close), millis(next, open));
+  }
+
+  private long millis(LocalDate d, LocalTime t) {
+    return d.atTime(t).atZone(zone).toInstant().toEpochMilli();
+  }
+
+  private static boolean isWeekend(LocalDate d) {
+    DayOfWeek w = d.getDayOfWeek();
+    return w == DayOfWeek.SATURDAY || w == DayOfWeek.SUNDAY;
+  }
+
+  private record Session(LocalDate date, long openMs, long closeMs, long nextOpenMs) {}
+
+  /** Per-symbol state; written under its monitor, {@link #refs} read lock-free. */
+  private static final class Sym {
+    volatile Refs refs;
+    double sessionClose;
+    double seed;
+    final double[] ring = new double[WEEK];   // last WEEK session closes
+    int head;
+    int closes;
+
+    void pushClose(double px) {
+      ring[head] = px;
+      head = (head + 1) % WEEK;
+      if (closes < WEEK) closes++;
+    }
+
+    /** Close WEEK sessions back, or the oldest one known. */
+    double weekAgo() {
+      return ring[(head - closes + WEEK) % WEEK];
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.sts.backend.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * RateLimitFilter — applies the {@link RateLimiter} policy of the route
+ * family to every /api request, after JWT authentication so a signed-in
+ * caller is limited per user (anywhere they connect from) and anonymous
+ * callers per IP.
+ *
+ * Every limited response carries RateLimit-Limit / RateLimit-Remaining /
+ * RateLimit-Reset; a rejected one is a 429 with Retry-After and a JSON body.
+ * Built by SecurityConfig, like JwtAuthFilter, rather than as a @Component.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  private final RateLimiter limiter;
+
+  public RateLimitFilter(RateLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  @Override
+  protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                  @NonNull HttpServletResponse response,
+                                  @NonNull FilterChain chain) throws ServletException, IOException {
+    RateLimiter.Policy policy = "OPTIONS".equals(request.getMethod()) ? null : limiter.policy(route(request.getRequestURI()));
+    if (policy == null) {
+      chain.doFilter(request, response);
+      return;
+    }
+    RateLimiter.Decision d = limiter.acquire(policy, caller(request));
+    headers(response, d);
+    if (!d.allowed()) {
+      response.setStatus(429);
+      response.setHeader("Retry-After", Long.toString((d.retryAfterMs() + 999) / 1000));
+      response.setContentType("application/json");
+      response.getWriter().write("{\"error\":\"RATE_LIMITED\",\"policy\":\"" + policy.name()
+          + "\",\"retryAfterMs\":" + d.retryAfterMs() + "}");
+      return;
+    }
+    chain.doFilter(request, response);
+  }
+
+  /** Route family of a request path; {@code null} for paths that are not limited. */
+  static String route(String uri) {
+    if (uri == null || !uri.startsWith("/api/")) return null;
+    if (uri.startsWith("/api/quotes") || uri.startsWith("/api/movers")) return "quotes";
+    if (uri.startsWith("/api/orders")) return "orders";
+    if (uri.startsWith("/api/news")) return "news";
+    if (uri.startsWith("/api/auth")) return "auth";
+    return "api";
+  }
+
+  /** "u:&lt;name&gt;" for an authenticated caller, "ip:&lt;address&gt;" otherwise. */
+  public static String caller(String username, String remoteAddr) {
+    return username != null ? "u:" + username : "ip:" + remoteAddr;
+  }
+
+  private static String caller(HttpServletRequest request) {
+    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+    boolean user = auth != null && auth.isAuthenticated() && !"anonymousUser".equals(String.valueOf(auth.getPrincipal()));
+    return caller(user ? auth.getName() : null, request.getRemoteAddr());
+  }
+
+  public static void headers(HttpServletResponse response, RateLimiter.Decision d) {
+    response.setHeader("RateLimit-Limit", Long.toString(d.policy().burst()));
+    response.setHeader("RateLimit-Remaining", Long.toString(d.remaining()));
+    response.setHeader("RateLimit-Reset", Long.toString(d.allowed() ? d.policy().fullRefillSeconds()
+                                                                    : (d.retryAfterMs() + 999) / 1000));
+  }
+}
@@ -0,0 +1,126 @@
+package com.sts.backend.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RateLimiter — token buckets per (policy, caller), caller being the user
+ * for authenticated requests and the client IP otherwise.
+ *
+ * Policies are "burst:rate" (bucket size : tokens refilled per second),
+ * configured per route family under ratelimit.*; a rate of 0 disables the
+ * policy. Bucket state is two primitives guarded by one of
+ * {@value #STRIPES} striped locks chosen by key hash, so contention is
+ * limited to keys that share a stripe. Buckets idle for idle-expiry-ms are
+ * dropped (a dropped bucket comes back full, which an idle caller would
+ * have reached anyway), and the total is capped at max-buckets.
+ *
+ * Throttled calls are counted as ratelimit.throttled{route=...}.
+ */
+@Component
+public class RateLimiter {
+
+  private static final int STRIPES = 64;
+
+  /** Outcome of one acquire; {@code retryAfterMs} is 0 when allowed. */
+  public record Decision(boolean allowed, Policy policy, long remaining, long retryAfterMs) {}
+
+  public record Policy(String name, long burst, double perSecond) {
+    /** Seconds until an empty bucket is full again (the RateLimit-Reset horizon). */
+    long fullRefillSeconds() {
+      return (long) Math.ceil(burst / perSecond);
+    }
+  }
+
+  private final boolean enabled;
+  private final Map<String, Policy> policies = new LinkedHashMap<>();
+  private final Cache<String, Bucket> buckets;
+  private final Object[] stripes = new Object[STRIPES];
+  private final MeterRegistry meters;
+  private final Map<String, Counter> throttled = new ConcurrentHashMap<>();
+
+  public RateLimiter(
+      MeterRegistry meters,
+      @Value("${ratelimit.enabled:true}") boolean enabled,
+      @Value("${ratelimit.idle-expiry-ms:600000}") long idleExpiryMs,
+      @Value("${ratelimit.max-buckets:100000}") long maxBuckets,
+      @Value("${ratelimit.quotes:20:10}") String quotes,
+      @Value("${ratelimit.orders:10:5}") String orders,
+      @Value("${ratelimit.news:10:2}") String news,
+      @Value("${ratelimit.auth:10:1}") String auth,
+      @Value("${ratelimit.api:60:30}") String api,
+      @Value("${ratelimit.ws-handshake:5:0.5}") String wsHandshake
+  ) {
+    this.meters = meters;
+    this.enabled = enabled;
+    define("quotes", quotes);
+    define("orders", orders);
+    define("news", news);
+    define("auth", auth);
+    define("api", api);
+    define("ws-handshake", wsHandshake);
+    this.buckets = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofMillis(idleExpiryMs))
+        .maximumSize(maxBuckets)
+        .build();
+    for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+  }
+
+  /** The policy by name, or {@code null} when unknown or disabled. */
+  public Policy policy(String name) {
+    return enabled ? policies.get(name) : null;
+  }
+
+  /** Takes one token from the caller's bucket for the policy. */
+  public Decision acquire(Policy policy, String caller) {
+    String key = policy.name() + '|' + caller;
+    Bucket b = buckets.get(key, k -> new Bucket(policy.burst()));
+    long now = System.nanoTime();
+    synchronized (stripes[(key.hashCode() & 0x7fffffff) % STRIPES]) {
+      double tokens = Math.min(policy.burst(), b.tokens + (now - b.lastNanos) / 1e9 * policy.perSecond());
+      b.lastNanos = now;
+      if (tokens >= 1.0) {
+        b.tokens = tokens - 1.0;
+        return new Decision(true, policy, (long) b.tokens, 0);
+      }
+      b.tokens = tokens;
+      long waitMs = (long) Math.ceil((1.0 - tokens) / policy.perSecond() * 1000.0);
+      counter(policy.name()).increment();
+      return new Decision(false, policy, 0, Math.max(1, waitMs));
+    }
+  }
+
+  private Counter counter(String policy) {
+    return throttled.computeIfAbsent(policy, p -> Counter.builder("ratelimit.throttled")
+        .description("Requests rejected by the rate limiter")
+        .tag("route", p)
+        .register(meters));
+  }
+
+  private void define(String name, String spec) {
+    if (spec == null || spec.isBlank()) return;
+    String[] parts = spec.trim().split(":");
+    long burst = Long.parseLong(parts[0].trim());
+    double rate = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : burst;
+    if (burst > 0 && rate > 0) policies.put(name, new Policy(name, burst, rate));
+  }
+
+  /** Mutable bucket state; written under its key's stripe lock. */
+  private static final class Bucket {
+    double tokens;
+    long lastNanos = System.nanoTime();
+
+    Bucket(long burst) {
+      this.tokens = burst;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.sts.backend.repository;
+
+import com.sts.backend.domain.PriceAlert;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * PriceAlertRepository — Data access layer for PriceAlert entity.
+ */
+@Repository
+public interface PriceAlertRepository extends CrudRepository<PriceAlert, Long> {
+
+  List<PriceAlert> findByStatus(PriceAlert.Status status);
+
+  List<PriceAlert> findTop200ByUsernameOrderByIdDesc(String username);
+}
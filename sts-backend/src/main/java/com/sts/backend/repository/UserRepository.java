@@ -1,9 +1,12 @@
 package com.sts.backend.repository;
 
 import com.sts.backend.domain.User;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,4 +23,21 @@ public interface UserRepository extends CrudRepository<User, UUID> {
   Optional<User> findByUsername(String username);
 
   Optional<User> findByEmail(String email);
+
+  boolean existsByUsernameIgnoreCase(String username);
+
+  boolean existsByEmailIgnoreCase(String email);
+
+  /**
+   * Username or email, case-insensitive, in one query (served by the
+   * LOWER() indexes of V3). A username match sorts first.
+   */
+  @Query("select u from User u where lower(u.username) = lower(:id) or lower(u.email) = lower(:id) " +
+         "order by case when lower(u.username) = lower(:id) then 0 else 1 end")
+  List<User> findByIdentifier(@Param("id") String identifier);
+
+  default Optional<User> findByUsernameOrEmail(String identifier) {
+    List<User> found = findByIdentifier(identifier);
+    return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+  }
 }
@@ -1,7 +1,8 @@
 package com.sts.backend.security;
 
 import com.sts.backend.domain.User;
-import com.sts.backend.repository.UserRepository;
+import com.sts.backend.user.UserCache;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -10,23 +11,47 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.util.Collection;
+import java.util.List;
 
-@Component
+/**
+ * JwtAuthFilter — authenticates "Bearer" requests from a single token parse.
+ *
+ * Modes (security.jwt.auth-mode):
+ *  - claims (default): the Authentication is built from the verified claims
+ *    alone (subject, roles, uid) with a {@link JwtPrincipal}; no DB access.
+ *  - database: the principal is the full {@code User}, loaded through the
+ *    short-TTL {@link UserCache}.
+ *
+ * Access tokens of a revoked family (logout) or issued before the user's
+ * revocation cut-off are rejected with 401 TOKEN_REVOKED, checked in O(1)
+ * against the in-memory {@link RevocationIndex}.
+ *
+ * Refresh tokens are never accepted as credentials; they pass through
+ * unauthenticated so /api/auth/refresh still sees them.
+ *
+ * Not a @Component: SecurityConfig adds it to the security chain only, so
+ * it is not registered a second time as a plain servlet filter.
+ */
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final UserCache principals;
+    private final RevocationIndex revocations;
+    private final boolean claimsMode;
 
-    public JwtAuthFilter(JwtService jwtService, UserRepository userRepository) {
+    public JwtAuthFilter(JwtService jwtService, UserCache principals, RevocationIndex revocations,
+                         boolean claimsMode) {
         this.jwtService = jwtService;
-        this.userRepository = userRepository;
+        this.principals = principals;
+        this.revocations = revocations;
+        this.claimsMode = claimsMode;
     }
 
     @Override
@@ -37,47 +62,62 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
 
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")
+                || SecurityContextHolder.getContext().getAuthentication() != null) {
             filterChain.doFilter(request, response);
             return;
         }
 
         final String token = authHeader.substring(7);
 
-        final String subject;
+        final Claims claims;
         try {
-            subject = jwtService.extractUsername(token);
+            claims = jwtService.verify(token);
         } catch (ExpiredJwtException ex) {
             // access token expired → return a clear 401 for frontend refresh
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.setHeader("X-Auth-Error", "TOKEN_EXPIRED");
-            response.getWriter().write("{\"error\":\"TOKEN_EXPIRED\"}");
+            reject(response, "TOKEN_EXPIRED");
             return;
         } catch (Exception ex) {
             // Invalid token
-            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-            response.setContentType("application/json");
-            response.setHeader("X-Auth-Error", "INVALID_TOKEN");
-            response.getWriter().write("{\"error\":\"INVALID_TOKEN\"}");
+            reject(response, "INVALID_TOKEN");
             return;
         }
 
-        if (subject != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Optional<User> userOpt = userRepository.findByUsername(subject);
-            if (userOpt.isEmpty()) userOpt = userRepository.findByEmail(subject);
-
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                if (jwtService.isTokenValid(token, user)) {
-                    var authToken = new UsernamePasswordAuthenticationToken(
-                            user, null, user.getAuthorities());
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+        String subject = JwtService.subject(claims);
+        if (subject != null && !JwtService.isRefresh(claims)
+                && (revocations.isFamilyRevoked(JwtService.family(claims))
+                    || revocations.isCutOff(subject, JwtService.issuedAtMillis(claims)))) {
+            // logged out, or revoked by a security event: same 401 as expiry so the client refreshes (and fails)
+            reject(response, "TOKEN_REVOKED");
+            return;
+        }
+        if (subject != null && !JwtService.isRefresh(claims)) {
+            Object principal = null;
+            Collection<? extends GrantedAuthority> authorities = List.of();
+            if (claimsMode) {
+                principal = new JwtPrincipal(JwtService.userId(claims), subject);
+                authorities = jwtService.authorities(claims);
+            } else {
+                User user = principals.find(subject).orElse(null);
+                if (user != null) {
+                    principal = user;
+                    authorities = user.getAuthorities();
                 }
             }
+            if (principal != null) {
+                var authToken = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private static void reject(HttpServletResponse response, String error) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json");
+        response.setHeader("X-Auth-Error", error);
+        response.getWriter().write("{\"error\":\"" + error + "\"}");
+    }
 }
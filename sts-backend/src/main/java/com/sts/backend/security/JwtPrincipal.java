@@ -0,0 +1,18 @@
+package com.sts.backend.security;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+/**
+ * JwtPrincipal — the authenticated caller as carried by a verified access
+ * token: subject and, for tokens that carry it, the user id ("uid" claim).
+ * {@link #getName()} is the subject, so {@code Authentication.getName()}
+ * resolves the same account as with a loaded {@code User}.
+ */
+public record JwtPrincipal(String userId, String username) implements Principal, Serializable {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
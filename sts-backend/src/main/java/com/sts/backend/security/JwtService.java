@@ -1,19 +1,26 @@
 package com.sts.backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import java.lang.reflect.Method;
-import java.time.Duration;
-import java.time.Instant;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JwtService — unified secure JWT utility
@@ -24,6 +31,14 @@ import java.util.*;
  *  - Includes role claims when available
  *  - Uses HMAC-SHA256 signing
  *  - Compatible with JJWT 0.12+ syntax
+ *  - One pre-built (immutable, thread-safe) parser, plus a bounded cache of
+ *    verified claims keyed by the token's SHA-256 that holds each entry
+ *    until the token expires, so a token replayed on every poll is
+ *    verified once. Cached Claims are shared: treat them as read-only.
+ *  - Mints without the JJWT builder: principals are read through the
+ *    {@link TokenSubject} contract (no per-call reflection), the header is a
+ *    pre-encoded constant, role arrays are serialized once per role set and
+ *    the HMAC instance is reused per thread.
  */
 
 @Service
@@ -33,34 +48,84 @@ public class JwtService {
   private final long accessTtlMs;
   private final long refreshTtlMs;
   private final long skewSeconds;
+  private final JwtParser parser;
+  private final Cache<Digest, Claims> verified;
+  private final double refreshReuseFraction;
+  private final ThreadLocal<Mac> hmac;
+  private final Map<List<String>, String> rolesJson = new ConcurrentHashMap<>();
+
+  private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+  private static final String HEADER =
+      B64.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII)) + '.';
 
   public JwtService(
       @Value("${security.jwt.secret-key:dev-secret-base64}") String base64Secret,
       @Value("${security.jwt.access-token-expiration:900000}") long accessTtlMs,
       @Value("${security.jwt.refresh-token-expiration:604800000}") long refreshTtlMs,
-      @Value("${security.jwt.allowed-skew-seconds:60}") long skewSeconds
+      @Value("${security.jwt.allowed-skew-seconds:60}") long skewSeconds,
+      @Value("${security.jwt.verified-cache-size:10000}") long verifiedCacheSize,
+      @Value("${security.jwt.refresh-reuse-fraction:0.5}") double refreshReuseFraction
   ) {
     this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
     this.accessTtlMs = accessTtlMs;
     this.refreshTtlMs = refreshTtlMs;
     this.skewSeconds = skewSeconds;
+    this.parser = Jwts.parserBuilder()
+        .setSigningKey(key)
+        .setAllowedClockSkewSeconds(skewSeconds)
+        .build();
+    this.refreshReuseFraction = refreshReuseFraction;
+    this.hmac = ThreadLocal.withInitial(() -> {
+      try {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(key);
+        return mac;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    this.verified = verifiedCacheSize <= 0 ? null : Caffeine.newBuilder()
+        .maximumSize(verifiedCacheSize)
+        .expireAfter(new UntilExpiry(skewSeconds * 1000, Math.max(accessTtlMs, refreshTtlMs)))
+        .build();
   }
 
   /* ------------------- TOKEN GENERATION ------------------- */
 
   public String generateAccessToken(Object user) {
-    String subject = subjectFromUser(user);
-    Map<String, Object> claims = new HashMap<>();
-    List<String> roles = rolesFromUser(user);
-    if (!roles.isEmpty()) claims.put("roles", roles);
-    claims.put("typ", "access");
-    return buildToken(claims, subject, accessTtlMs);
+    return generateAccessToken(user, null);
   }
 
+  /** Access token of a token family (login session); {@code family} may be null. */
+  public String generateAccessToken(Object user, String family) {
+    TokenSubject s = TokenSubjects.of(user);
+    if (s == null) return mint(null, null, null, "access", null, family, accessTtlMs);
+    return mint(s.tokenSubject(), s.tokenUserId(), rolesJson(s.tokenRoles()), "access", null, family, accessTtlMs);
+  }
+
+  /** Refresh token opening a new family. */
   public String generateRefreshToken(Object user) {
-    String subject = subjectFromUser(user);
-    Map<String, Object> claims = Map.of("typ", "refresh");
-    return buildToken(claims, subject, refreshTtlMs);
+    return generateRefreshToken(user, newFamily());
+  }
+
+  /** Refresh token with a fresh jti inside {@code family}. */
+  public String generateRefreshToken(Object user, String family) {
+    TokenSubject s = TokenSubjects.of(user);
+    return mint(s == null ? null : s.tokenSubject(), null, null, "refresh",
+        UUID.randomUUID().toString(), family, refreshTtlMs);
+  }
+
+  public static String newFamily() {
+    return UUID.randomUUID().toString();
+  }
+
+  /**
+   * True when more than {@code security.jwt.refresh-reuse-fraction} of the
+   * token's lifetime is left (refresh hands it back when rotation is off).
+   */
+  public boolean hasMostOfLifeLeft(Claims claims) {
+    Date exp = claims.getExpiration();
+    return exp != null && exp.getTime() - System.currentTimeMillis() > refreshTtlMs * refreshReuseFraction;
   }
 
   /* ------------------- TOKEN VALIDATION ------------------- */
@@ -68,7 +133,8 @@ public class JwtService {
   public boolean isTokenValid(String token, Object user) {
     try {
       Claims claims = parse(token);
-      String expected = subjectFromUser(user);
+      TokenSubject s = TokenSubjects.of(user);
+      String expected = s == null ? null : s.tokenSubject();
       if (expected == null || expected.isBlank()) return false;
       String actual = claims.getSubject();
       if (actual == null || actual.isBlank()) actual = Objects.toString(claims.get("username"), null);
@@ -80,10 +146,9 @@ public class JwtService {
 
   public boolean isTokenValid(String token, String expectedUsername) {
     try {
-      var claims = Jwts.parserBuilder().setSigningKey(key).build()
-          .parseClaimsJws(token).getBody();
+      var claims = parse(token);
       return expectedUsername.equals(claims.getSubject()) && !isExpired(claims);
-    } catch (JwtException e) {
+    } catch (JwtException | IllegalArgumentException e) {
       return false;
     }
   }
@@ -97,20 +162,73 @@ public class JwtService {
     }
   }
 
+  /**
+   * Verified claims of a token (signature and expiry checked once).
+   *
+   * @throws ExpiredJwtException when the token is past its expiry
+   * @throws JwtException        when it is malformed or not signed by us
+   */
+  public Claims verify(String token) {
+    return parse(token);
+  }
+
   public String extractUsername(String token) {
     try {
-      Claims claims = parse(token);
-      String sub = claims.getSubject();
-      if (sub != null && !sub.isBlank()) return sub;
-      Object alt = claims.get("username");
-      return alt == null ? null : String.valueOf(alt);
+      return subject(parse(token));
     } catch (Exception e) {
       return null;
     }
   }
 
+  /** Subject, or the legacy "username" claim. */
+  public static String subject(Claims claims) {
+    String sub = claims.getSubject();
+    if (sub != null && !sub.isBlank()) return sub;
+    Object alt = claims.get("username");
+    return alt == null ? null : String.valueOf(alt);
+  }
+
+  /** The "uid" claim, absent on tokens minted before it was added. */
+  public static String userId(Claims claims) {
+    Object uid = claims.get("uid");
+    return uid == null ? null : uid.toString();
+  }
+
+  /** Token family ("fam"), shared by every token minted under one login. */
+  public static String family(Claims claims) {
+    Object fam = claims.get("fam");
+    return fam == null ? null : fam.toString();
+  }
+
+  /** "iat" in epoch seconds, read without materializing a Date; 0 if absent. */
+  public static long issuedAt(Claims claims) {
+    return claims.get("iat") instanceof Number n ? n.longValue() : 0L;
+  }
+
+  /**
+   * Issue time in epoch ms: the "iat_ms" claim, or the start of the "iat"
+   * second for tokens minted without it. Revocation cut-offs compare at
+   * this resolution, so a token minted right after a cut-off is not caught
+   * by it.
+   */
+  public static long issuedAtMillis(Claims claims) {
+    return claims.get("iat_ms") instanceof Number n ? n.longValue() : issuedAt(claims) * 1000;
+  }
+
+  /** "exp" in epoch seconds; 0 if absent. */
+  public static long expiresAt(Claims claims) {
+    return claims.get("exp") instanceof Number n ? n.longValue() : 0L;
+  }
+
+  public static boolean isRefresh(Claims claims) {
+    return "refresh".equals(claims.get("typ"));
+  }
+
   public List<GrantedAuthority> extractAuthorities(String token) {
-    Claims claims = parse(token);
+    return authorities(parse(token));
+  }
+
+  public List<GrantedAuthority> authorities(Claims claims) {
     List<GrantedAuthority> list = new ArrayList<>();
     Object roles = claims.get("roles");
     if (roles instanceof Collection<?> col) {
@@ -127,63 +245,74 @@ public class JwtService {
 
   /* ------------------- INTERNAL HELPERS ------------------- */
 
-  private String buildToken(Map<String, Object> claims, String subject, long ttlMs) {
-    Instant now = Instant.now();
-    return Jwts.builder()
-        .setClaims(claims)
-        .setSubject(subject)
-        .setIssuedAt(Date.from(now))
-        .setExpiration(Date.from(now.plus(Duration.ofMillis(ttlMs))))
-        .signWith(key, SignatureAlgorithm.HS256)
-        .compact();
-  }
+  /** header.payload.signature, HS256; the same token JJWT's builder would produce. */
+  private String mint(String subject, String uid, String roles, String typ, String jti, String family, long ttlMs) {
+    long nowMs = System.currentTimeMillis();
+    long now = nowMs / 1000;
+    StringBuilder json = new StringBuilder(192).append('{');
+    if (subject != null) quote(json.append("\"sub\":"), subject).append(',');
+    if (uid != null) quote(json.append("\"uid\":"), uid).append(',');
+    if (roles != null) json.append("\"roles\":").append(roles).append(',');
+    if (jti != null) json.append("\"jti\":\"").append(jti).append("\",");
+    if (family != null) json.append("\"fam\":\"").append(family).append("\",");
+    json.append("\"typ\":\"").append(typ)
+        .append("\",\"iat\":").append(now)
+        .append(",\"iat_ms\":").append(nowMs)
+        .append(",\"exp\":").append(now + ttlMs / 1000).append('}');
 
-  private Claims parse(String token) {
-    return Jwts.parserBuilder()
-        .setSigningKey(key)
-        .setAllowedClockSkewSeconds(skewSeconds)
-        .build()
-        .parseClaimsJws(token)
-        .getBody();
+    String signingInput = HEADER + B64.encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+    byte[] sig = hmac.get().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    return signingInput + '.' + B64.encodeToString(sig);
   }
 
-  private boolean isExpired(Claims claims) {
-    Date exp = claims.getExpiration();
-    return exp != null && exp.before(new Date());
+  /** JSON array of normalized role names, or {@code null} for none; cached per distinct role list. */
+  private String rolesJson(List<String> raw) {
+    if (raw == null || raw.isEmpty()) return null;
+    String hit = rolesJson.get(raw);
+    if (hit != null) return hit;
+    List<String> roles = normalizeRoles(raw);
+    String json = null;
+    if (!roles.isEmpty()) {
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i < roles.size(); i++) quote(i == 0 ? sb : sb.append(','), roles.get(i));
+      json = sb.append(']').toString();
+    }
+    if (json != null && rolesJson.size() < 256) rolesJson.putIfAbsent(List.copyOf(raw), json);
+    return json;
   }
 
-  private String subjectFromUser(Object user) {
-    if (user == null) return null;
-    if (user instanceof UserDetails ud) return ud.getUsername();
-    for (String m : new String[]{"getUsername", "getEmail", "getName", "getId"}) {
-      try {
-        Method method = user.getClass().getMethod(m);
-        Object val = method.invoke(user);
-        if (val != null && !val.toString().isBlank()) return val.toString();
-      } catch (Exception ignore) {}
+  private static StringBuilder quote(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\t' -> sb.append("\\t");
+        default -> {
+          if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+          else sb.append(c);
+        }
+      }
     }
-    return null;
+    return sb.append('"');
   }
 
-  private List<String> rolesFromUser(Object user) {
-    List<String> out = new ArrayList<>();
-    if (user instanceof UserDetails ud) {
-      for (GrantedAuthority a : ud.getAuthorities()) out.add(a.getAuthority());
-      return normalizeRoles(out);
-    }
-    try {
-      Method m = user.getClass().getMethod("getAuthorities");
-      Object v = m.invoke(user);
-      if (v instanceof Collection<?> c) for (Object a : c) out.add(Objects.toString(a, ""));
-      return normalizeRoles(out);
-    } catch (Exception ignore) {}
-    try {
-      Method m = user.getClass().getMethod("getRoles");
-      Object v = m.invoke(user);
-      if (v instanceof Collection<?> c) for (Object a : c) out.add(Objects.toString(a, ""));
-      return normalizeRoles(out);
-    } catch (Exception ignore) {}
-    return out;
+  private Claims parse(String token) {
+    if (verified == null) return parser.parseClaimsJws(token).getBody();
+    Digest d = Digest.of(token);
+    Claims hit = verified.getIfPresent(d);
+    if (hit != null) return hit;
+    Claims claims = parser.parseClaimsJws(token).getBody();   // throws: failures are never cached
+    verified.put(d, claims);
+    return claims;
+  }
+
+  private boolean isExpired(Claims claims) {
+    Date exp = claims.getExpiration();
+    return exp != null && exp.before(new Date());
   }
 
   private List<String> normalizeRoles(List<String> roles) {
@@ -199,4 +328,42 @@ public class JwtService {
     String r = raw.trim();
     return r.startsWith("ROLE_") ? r : "ROLE_" + r;
   }
+
+  /* ------------------- VERIFIED-TOKEN CACHE ------------------- */
+
+  /** SHA-256 of a token as four longs: cheap equals/hashCode, no token text retained. */
+  private record Digest(long a, long b, long c, long d) {
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+      try {
+        return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    static Digest of(String token) {
+      ByteBuffer h = ByteBuffer.wrap(SHA256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+      return new Digest(h.getLong(), h.getLong(), h.getLong(), h.getLong());
+    }
+  }
+
+  /** Entries live until the token's exp (plus the allowed skew the parser honours). */
+  private record UntilExpiry(long skewMs, long maxMs) implements Expiry<Digest, Claims> {
+    @Override
+    public long expireAfterCreate(Digest k, Claims claims, long currentTime) {
+      Date exp = claims.getExpiration();
+      long ms = exp == null ? maxMs : exp.getTime() + skewMs - System.currentTimeMillis();
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(ms, maxMs)));
+    }
+
+    @Override
+    public long expireAfterUpdate(Digest k, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(Digest k, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
 }
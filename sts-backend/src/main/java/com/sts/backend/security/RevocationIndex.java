@@ -0,0 +1,335 @@
+package com.sts.backend.security;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * RevocationIndex — revoked refresh-token ids (jti), revoked token families
+ * (one family per login, shared by the access and refresh tokens it mints)
+ * and per-user "not before" cut-offs.
+ *
+ * jti and family ids are UUIDs held as two longs in open-addressing
+ * primitive tables (24 bytes per entry with its expiry); lookups parse the
+ * id straight from the claim string and probe under an optimistic read, so
+ * the check on every refresh and request is O(1) and allocates nothing.
+ * Entries are only kept until the revoked token could have expired anyway.
+ *
+ * Every revocation is appended to a local file before it is acknowledged;
+ * startup replays the file, drops expired records and rewrites it compact.
+ */
+@Component
+public class RevocationIndex {
+
+  private static final byte TOKEN = 1;
+  private static final byte FAMILY = 2;
+  private static final byte USER = 3;
+  private static final long SECONDS_ERA = 100_000_000_000L;   // cut-offs below this were written in seconds
+
+  private final Path file;
+  private final long familyTtlSeconds;
+  private final IdSet tokens = new IdSet();
+  private final IdSet families = new IdSet();
+  private final Map<String, long[]> userCutoff = new ConcurrentHashMap<>();   // username → {notBefore ms, expiry s}
+  private DataOutputStream log;
+  private long appended;
+
+  public RevocationIndex(
+      @Value("${security.revocation.file:./data/revocations.bin}") String file,
+      @Value("${security.jwt.refresh-token-expiration:604800000}") long refreshTtlMs
+  ) {
+    this.file = file == null || file.isBlank() ? null : Path.of(file);
+    this.familyTtlSeconds = refreshTtlMs / 1000 + 1;
+  }
+
+  @PostConstruct
+  synchronized void load() throws IOException {
+    if (file == null) return;
+    long now = nowSeconds();
+    if (Files.exists(file)) {
+      long t0 = System.nanoTime();
+      int records = 0;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+        while (true) {
+          byte type;
+          try {
+            type = in.readByte();
+          } catch (EOFException eof) {
+            break;
+          }
+          try {
+            if (type == USER) {
+              String user = in.readUTF();
+              long notBefore = in.readLong(), exp = in.readLong();
+              if (notBefore < SECONDS_ERA) notBefore = (notBefore + 1) * 1000;   // older logs: whole seconds, inclusive
+              if (exp > now) userCutoff.merge(user, new long[]{notBefore, exp}, (a, b) -> a[0] >= b[0] ? a : b);
+            } else {
+              long hi = in.readLong(), lo = in.readLong(), exp = in.readLong();
+              if (exp > now) (type == FAMILY ? families : tokens).add(hi, lo, exp);
+            }
+            records++;
+          } catch (EOFException torn) {
+            break;   // last record cut short by a crash
+          }
+        }
+      }
+      System.out.println("[AUTH] revocation index: " + records + " records replayed, " + tokens.size() + " tokens, "
+          + families.size() + " families, " + userCutoff.size() + " users live in "
+          + (System.nanoTime() - t0) / 1_000_000 + "ms");
+    }
+    compact();
+  }
+
+  /* ------------------- CHECKS (hot path) ------------------- */
+
+  public boolean isTokenRevoked(String jti) {
+    return jti != null && jti.length() == 36 && tokens.contains(hi(jti), lo(jti));
+  }
+
+  public boolean isFamilyRevoked(String family) {
+    return family != null && family.length() == 36 && families.contains(hi(family), lo(family));
+  }
+
+  /** True when the token was issued (epoch ms) before the user's revocation cut-off. */
+  public boolean isCutOff(String username, long issuedAtMillis) {
+    long[] c = username == null ? null : userCutoff.get(username);
+    return c != null && issuedAtMillis < c[0];
+  }
+
+  /* ------------------- REVOCATIONS ------------------- */
+
+  /**
+   * @return false if the token was already revoked — for a refresh token, a
+   *         second use; ids that are malformed or already expired are not
+   *         recorded and count as newly revoked
+   */
+  public synchronized boolean revokeToken(String jti, long expSeconds) {
+    if (jti == null || jti.length() != 36 || expSeconds <= nowSeconds()) return true;
+    if (!tokens.add(hi(jti), lo(jti), expSeconds)) return false;
+    append(TOKEN, null, hi(jti), lo(jti), expSeconds);
+    return true;
+  }
+
+  /** Ends a login session: no token of the family refreshes or authenticates again. */
+  public synchronized void revokeFamily(String family) {
+    if (family == null || family.length() != 36) return;
+    long exp = nowSeconds() + familyTtlSeconds;   // no token of the family outlives this
+    families.add(hi(family), lo(family), exp);
+    append(FAMILY, null, hi(family), lo(family), exp);
+  }
+
+  /** Security event (password or role change, "log out everywhere"): tokens issued until now stop working. */
+  public synchronized void revokeUser(String username) {
+    if (username == null) return;
+    // in ms, compared with "<": tokens minted right after (e.g. the re-login that follows) stay valid
+    long[] c = {System.currentTimeMillis(), nowSeconds() + familyTtlSeconds};
+    userCutoff.put(username, c);
+    append(USER, username, c[0], 0, c[1]);
+  }
+
+  /* ------------------- PERSISTENCE ------------------- */
+
+  private void append(byte type, String user, long a, long b, long exp) {
+    if (file == null) return;
+    try {
+      if (log == null) log = open(true);
+      writeRecord(log, type, user, a, b, exp);
+      log.flush();
+      if (++appended > 2L * (tokens.size() + families.size() + userCutoff.size()) + 1024) compact();
+    } catch (IOException e) {
+      System.err.println("[AUTH] revocation log write failed: " + e.getMessage());
+    }
+  }
+
+  /** Rewrites the file with live entries only (write to a temp file, then atomic move). */
+  private void compact() throws IOException {
+    if (file == null) return;
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+    if (file.getParent() != null) Files.createDirectories(file.getParent());
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    long now = nowSeconds();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      tokens.forEachLive(now, (hi, lo, exp) -> writeRecord(out, TOKEN, null, hi, lo, exp));
+      families.forEachLive(now, (hi, lo, exp) -> writeRecord(out, FAMILY, null, hi, lo, exp));
+      for (Map.Entry<String, long[]> e : userCutoff.entrySet()) {
+        if (e.getValue()[1] > now) writeRecord(out, USER, e.getKey(), e.getValue()[0], 0, e.getValue()[1]);
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    tokens.purge(now);
+    families.purge(now);
+    userCutoff.values().removeIf(c -> c[1] <= now);
+    appended = 0;
+    log = open(true);
+  }
+
+  private DataOutputStream open(boolean append) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile(), append)));
+  }
+
+  private static void writeRecord(DataOutputStream out, byte type, String user, long a, long b, long exp)
+      throws IOException {
+    out.writeByte(type);
+    if (type == USER) {
+      out.writeUTF(user);
+      out.writeLong(a);
+    } else {
+      out.writeLong(a);
+      out.writeLong(b);
+    }
+    out.writeLong(exp);
+  }
+
+  private static long nowSeconds() {
+    return System.currentTimeMillis() / 1000;
+  }
+
+  /* ------------------- UUID → two longs, without allocating ------------------- */
+
+  /** First 16 hex digits of a canonical UUID string (dashes skipped). */
+  static long hi(String uuid) {
+    return hex(uuid, 0, 18);
+  }
+
+  static long lo(String uuid) {
+    return hex(uuid, 19, 36);
+  }
+
+  private static long hex(String s, int from, int to) {
+    long v = 0;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c == '-') continue;
+      int d = Character.digit(c, 16);
+      v = (v << 4) | (d < 0 ? 0 : d);
+    }
+    return v;
+  }
+
+  /* ------------------- PRIMITIVE SET ------------------- */
+
+  @FunctionalInterface
+  interface EntryWriter {
+    void write(long hi, long lo, long exp) throws IOException;
+  }
+
+  /**
+   * Open-addressing (hi, lo) → expiry set, linear probing, at most half
+   * full. (0, 0) marks an empty slot and is stored as (0, 1). Writers are
+   * serialized by the index; readers use an optimistic stamp and retry
+   * under the read lock only if a write raced them.
+   */
+  static final class IdSet {
+    private final StampedLock lock = new StampedLock();
+    private long[] his = new long[1024], los = new long[1024], exps = new long[1024];
+    private int size;
+
+    int size() {
+      return size;
+    }
+
+    boolean contains(long hi, long lo) {
+      if (hi == 0 && lo == 0) lo = 1;
+      long stamp = lock.tryOptimisticRead();
+      long[] h = his, l = los;
+      if (h.length == l.length) {   // a resize in flight can pair arrays of different sizes
+        boolean found = probe(h, l, hi, lo);
+        if (lock.validate(stamp)) return found;
+      }
+      stamp = lock.readLock();
+      try {
+        return probe(his, los, hi, lo);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    /** @return true if the id was not held yet */
+    boolean add(long hi, long lo, long exp) {
+      if (hi == 0 && lo == 0) lo = 1;
+      long stamp = lock.writeLock();
+      try {
+        if ((size + 1) * 2 > his.length) rehash(his.length * 2, Long.MIN_VALUE);
+        if (!insert(his, los, exps, hi, lo, exp)) return false;
+        size++;
+        return true;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    /** Drops entries that expired at or before {@code now}. */
+    void purge(long now) {
+      long stamp = lock.writeLock();
+      try {
+        rehash(his.length, now);
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    void forEachLive(long now, EntryWriter w) throws IOException {
+      for (int i = 0; i < his.length; i++) {
+        if ((his[i] != 0 || los[i] != 0) && exps[i] > now) w.write(his[i], los[i], exps[i]);
+      }
+    }
+
+    private void rehash(int capacity, long now) {
+      long[] h = his, l = los, e = exps;
+      his = new long[capacity];
+      los = new long[capacity];
+      exps = new long[capacity];
+      size = 0;
+      for (int i = 0; i < h.length; i++) {
+        if ((h[i] != 0 || l[i] != 0) && e[i] > now && insert(his, los, exps, h[i], l[i], e[i])) size++;
+      }
+    }
+
+    private static boolean probe(long[] his, long[] los, long hi, long lo) {
+      int mask = his.length - 1;
+      int i = mix(hi, lo) & mask;
+      for (int n = 0; n <= mask; n++, i = (i + 1) & mask) {
+        long h = his[i], l = los[i];
+        if (h == hi && l == lo) return true;
+        if (h == 0 && l == 0) return false;
+      }
+      return false;
+    }
+
+    /** True if a new slot was used; an existing id keeps the later expiry. */
+    private static boolean insert(long[] his, long[] los, long[] exps, long hi, long lo, long exp) {
+      int mask = his.length - 1;
+      int i = mix(hi, lo) & mask;
+      while (true) {
+        if (his[i] == hi && los[i] == lo) {
+          exps[i] = Math.max(exps[i], exp);
+          return false;
+        }
+        if (his[i] == 0 && los[i] == 0) {
+          exps[i] = exp;
+          los[i] = lo;
+          his[i] = hi;
+          return true;
+        }
+        i = (i + 1) & mask;
+      }
+    }
+
+    private static int mix(long hi, long lo) {
+      long z = hi * 0x9E3779B97F4A7C15L ^ lo;
+      z = (z ^ (z >>> 32)) * 0xBF58476D1CE4E5B9L;
+      return (int) (z ^ (z >>> 29));
+    }
+  }
+}
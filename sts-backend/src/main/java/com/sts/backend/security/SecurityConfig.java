@@ -1,6 +1,10 @@
 package com.sts.backend.security;
 
+import com.sts.backend.ratelimit.RateLimitFilter;
+import com.sts.backend.ratelimit.RateLimiter;
+import com.sts.backend.user.UserCache;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -10,7 +14,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import com.sts.backend.repository.UserRepository;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -26,6 +29,7 @@ import java.util.List;
  *  • JWT-based stateless authentication
  *  • CORS configuration for dev/prod
  *  • QueryParamBearerTokenFilter (for WebSocket / browser auth)
+ *  • RateLimitFilter (token buckets per user or IP, per route family)
  *  • Disables form login, CSRF, HTTP Basic
  *  • H2 console + actuator + /api/auth public endpoints
  */
@@ -36,12 +40,20 @@ public class SecurityConfig {
 
   private final AuthenticationProvider authProvider;
   private final JwtService jwt;
-  private final UserRepository userRepository;
-
-  public SecurityConfig(AuthenticationProvider authProvider, JwtService jwt, UserRepository userRepository) {
+  private final UserCache principals;
+  private final RevocationIndex revocations;
+  private final RateLimiter rateLimiter;
+  private final boolean claimsAuth;
+
+  public SecurityConfig(AuthenticationProvider authProvider, JwtService jwt, UserCache principals,
+                        RevocationIndex revocations, RateLimiter rateLimiter,
+                        @Value("${security.jwt.auth-mode:claims}") String authMode) {
     this.authProvider = authProvider;
     this.jwt = jwt;
-    this.userRepository = userRepository;
+    this.principals = principals;
+    this.revocations = revocations;
+    this.rateLimiter = rateLimiter;
+    this.claimsAuth = !"database".equalsIgnoreCase(authMode);
   }
 
   @Bean
@@ -51,7 +63,7 @@ public class SecurityConfig {
   ) throws Exception {
 
     // Construct JWT filter dynamically
-    JwtAuthFilter jwtAuthFilter = new JwtAuthFilter(jwt, userRepository);
+    JwtAuthFilter jwtAuthFilter = new JwtAuthFilter(jwt, principals, revocations, claimsAuth);
 
     http
       // --- CORS / CSRF / Sessions ---
@@ -75,6 +87,10 @@ public class SecurityConfig {
           .requestMatchers("/api/watchlist/**").permitAll()
           .requestMatchers("/api/quotes/**").permitAll()
           .requestMatchers("/api/movers/**").permitAll()
+          .requestMatchers("/api/tape/**").permitAll()
+          .requestMatchers(HttpMethod.PUT, "/api/baskets/**").authenticated()   // defining tracks symbols
+          .requestMatchers(HttpMethod.DELETE, "/api/baskets/**").authenticated()
+          .requestMatchers("/api/baskets/**").permitAll()
           .requestMatchers("/api/stream/**").authenticated() // Require authentication for streams
           .requestMatchers("/actuator/**", "/h2-console/**").permitAll()
           // WebSocket handshake itself is permitted; optional JWT validation happens in interceptor
@@ -87,9 +103,10 @@ public class SecurityConfig {
       .formLogin(AbstractHttpConfigurer::disable)
       .logout(Customizer.withDefaults())
 
-      // --- Filters (QueryParam then JWT) ---
+      // --- Filters (QueryParam, JWT, then rate limit keyed by the authenticated user) ---
       .addFilterBefore(new QueryParamBearerTokenFilter(), UsernamePasswordAuthenticationFilter.class)
       .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+      .addFilterAfter(new RateLimitFilter(rateLimiter), JwtAuthFilter.class)
       .authenticationProvider(authProvider);
 
     return http.build();
@@ -107,7 +124,7 @@ public class SecurityConfig {
         "https://eazy-byts-trade-app.vercel.app"
     ));
     cfg.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-    cfg.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Cache-Control"));
+    cfg.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Cache-Control", "Idempotency-Key"));
     cfg.setAllowCredentials(true);
 
     UrlBasedCorsConfigurationSource src = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,24 @@
+package com.sts.backend.security;
+
+import java.util.List;
+
+/**
+ * TokenSubject — what JwtService needs to mint a token for a principal.
+ * Implemented by the {@code User} entity; other principal types are adapted
+ * by {@link TokenSubjects}.
+ */
+public interface TokenSubject {
+
+    /** Token "sub": the username (or another stable login name). */
+    String tokenSubject();
+
+    /** Token "uid", or {@code null} when the principal has no persistent id. */
+    default String tokenUserId() {
+        return null;
+    }
+
+    /** Role names, with or without the "ROLE_" prefix. */
+    default List<String> tokenRoles() {
+        return List.of();
+    }
+}
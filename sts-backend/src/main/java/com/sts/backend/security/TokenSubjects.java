@@ -0,0 +1,109 @@
+package com.sts.backend.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Adapts any principal to a {@link TokenSubject}.
+ *
+ * {@link TokenSubject} and {@link UserDetails} are used directly. For other
+ * types the getters (getUsername/getEmail/getName/getId for the subject,
+ * getId for the uid, getAuthorities or getRoles for roles) are resolved
+ * once per class into method handles, so minting never looks methods up
+ * or throws on the hot path.
+ */
+final class TokenSubjects {
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final String[] SUBJECT_GETTERS = {"getUsername", "getEmail", "getName", "getId"};
+
+    private static final ClassValue<Accessors> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Accessors computeValue(Class<?> type) {
+            List<MethodHandle> subject = new ArrayList<>();
+            for (String m : SUBJECT_GETTERS) {
+                MethodHandle h = getter(type, m);
+                if (h != null) subject.add(h);
+            }
+            MethodHandle roles = getter(type, "getAuthorities");
+            if (roles == null) roles = getter(type, "getRoles");
+            return new Accessors(subject.toArray(new MethodHandle[0]), getter(type, "getId"), roles);
+        }
+    };
+
+    private TokenSubjects() {}
+
+    static TokenSubject of(Object user) {
+        if (user == null) return null;
+        if (user instanceof TokenSubject ts) return ts;
+        if (user instanceof UserDetails ud) return new Details(ud);
+        return new Reflected(user, ACCESSORS.get(user.getClass()));
+    }
+
+    /** Public no-arg getter as an (Object)Object handle, or {@code null} if there is none. */
+    private static MethodHandle getter(Class<?> type, String name) {
+        try {
+            return MethodHandles.publicLookup().unreflect(type.getMethod(name)).asType(GETTER);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;   // absent or inaccessible: resolved once per class, never retried
+        }
+    }
+
+    private record Accessors(MethodHandle[] subject, MethodHandle id, MethodHandle roles) {}
+
+    private record Details(UserDetails user) implements TokenSubject {
+        @Override
+        public String tokenSubject() {
+            return user.getUsername();
+        }
+
+        @Override
+        public List<String> tokenRoles() {
+            List<String> out = new ArrayList<>();
+            for (GrantedAuthority a : user.getAuthorities()) out.add(a.getAuthority());
+            return out;
+        }
+    }
+
+    private record Reflected(Object user, Accessors accessors) implements TokenSubject {
+        @Override
+        public String tokenSubject() {
+            for (MethodHandle h : accessors.subject()) {
+                Object v = call(h);
+                if (v != null && !v.toString().isBlank()) return v.toString();
+            }
+            return null;
+        }
+
+        @Override
+        public String tokenUserId() {
+            Object v = accessors.id() == null ? null : call(accessors.id());
+            return v == null ? null : v.toString();
+        }
+
+        @Override
+        public List<String> tokenRoles() {
+            Object v = accessors.roles() == null ? null : call(accessors.roles());
+            if (!(v instanceof Collection<?> c)) return List.of();
+            List<String> out = new ArrayList<>(c.size());
+            for (Object r : c) out.add(r instanceof GrantedAuthority a ? a.getAuthority() : Objects.toString(r, ""));
+            return out;
+        }
+
+        private Object call(MethodHandle h) {
+            try {
+                return (Object) h.invokeExact(user);
+            } catch (Throwable t) {
+                return null;   // a throwing getter counts as "no value", as before
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.sts.backend.tape;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/tape")
+public class TapeController {
+
+  private final TradeTape tape;
+
+  public TapeController(TradeTape tape) {
+    this.tape = tape;
+  }
+
+  // GET /api/tape/AAPL?limit=100&aggregateMs=250  (oldest first)
+  @GetMapping("/{symbol}")
+  public List<TradeTape.Print> recent(@PathVariable String symbol,
+                                      @RequestParam(defaultValue = "100") int limit,
+                                      @RequestParam(defaultValue = "0") long aggregateMs) {
+    return tape.recent(symbol.trim().toUpperCase(), Math.min(Math.max(limit, 1), 4096), Math.max(0, aggregateMs));
+  }
+}
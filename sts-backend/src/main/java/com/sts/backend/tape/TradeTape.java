@@ -0,0 +1,199 @@
+package com.sts.backend.tape;
+
+import com.sts.backend.orders.Fill;
+import com.sts.backend.orders.OrderService;
+import com.sts.backend.quotes.QuoteBook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TradeTape — time and sales per symbol in a fixed-size primitive ring.
+ *
+ * Prints come from paper executions (aggressor = the order's side) and,
+ * because the quote feed carries no trades, optionally (off by default)
+ * from the quote stream itself: one synthetic print per tick, sided by the
+ * tick rule (up-tick = buyer-initiated). Synthetic prints are flagged on
+ * the wire and never aggregated with real ones, so volume consumers can
+ * leave them out.
+ *
+ * Every print gets a per-symbol sequence number; readers ask for the last N
+ * or for everything after a sequence, optionally aggregated (consecutive
+ * prints at the same price and side within N ms merged into one).
+ */
+@Component
+public class TradeTape {
+
+  public static final char BUY = 'B';
+  public static final char SELL = 'S';
+
+  public record Print(long seq, long ts, double price, long size, char side, boolean synthetic) {}
+
+  private final int capacity;
+  private final boolean synthetic;
+  private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+  public TradeTape(
+      QuoteBook quotes,
+      OrderService orders,
+      @Value("${tape.capacity:4096}") int capacity,
+      @Value("${tape.synthetic-prints:false}") boolean synthetic
+  ) {
+    this.capacity = Math.max(16, capacity);
+    this.synthetic = synthetic;
+    orders.addFillListener(this::onFill);
+    if (synthetic) quotes.addListener(this::onTick);
+  }
+
+  public void record(String symbol, double price, long size, char side, long ts) {
+    ring(symbol).add(ts, price, size, side, false);
+  }
+
+  /** Highest sequence recorded for the symbol (0 if none). */
+  public long lastSeq(String symbol) {
+    Ring r = rings.get(symbol);
+    if (r == null) return 0;
+    synchronized (r) {
+      return r.seq;
+    }
+  }
+
+  /** The last {@code limit} prints (before aggregation), oldest first. */
+  public List<Print> recent(String symbol, int limit, long aggregateMs) {
+    Ring r = rings.get(symbol);
+    if (r == null) return List.of();
+    List<Print> raw;
+    synchronized (r) {
+      raw = r.copy(Math.max(0, r.seq - limit));
+    }
+    return aggregateMs > 0 ? aggregate(raw, aggregateMs) : raw;
+  }
+
+  /** Prints with a sequence above {@code afterSeq} still held in the ring, oldest first. */
+  public List<Print> since(String symbol, long afterSeq, long aggregateMs) {
+    Ring r = rings.get(symbol);
+    if (r == null) return List.of();
+    List<Print> raw;
+    synchronized (r) {
+      if (r.seq <= afterSeq) return List.of();
+      raw = r.copy(afterSeq);
+    }
+    return aggregateMs > 0 ? aggregate(raw, aggregateMs) : raw;
+  }
+
+  /**
+   * Merges runs of same-price, same-side prints whose first and last print
+   * are at most {@code windowMs} apart. Sizes add up; the merged print keeps
+   * the last sequence and timestamp of its run.
+   */
+  public static List<Print> aggregate(List<Print> prints, long windowMs) {
+    List<Print> out = new ArrayList<>(prints.size());
+    Print run = null;
+    long runStart = 0;
+    for (Print p : prints) {
+      if (run != null && p.side() == run.side() && p.price() == run.price() && p.synthetic() == run.synthetic()
+          && p.ts() - runStart <= windowMs) {
+        run = new Print(p.seq(), p.ts(), p.price(), run.size() + p.size(), p.side(), p.synthetic());
+        continue;
+      }
+      if (run != null) out.add(run);
+      run = p;
+      runStart = p.ts();
+    }
+    if (run != null) out.add(run);
+    return out;
+  }
+
+  /** {@code {"type":"TRADES",...}} frame; {@code null} when there is nothing to send. */
+  public static String frame(String symbol, List<Print> prints, long aggregateMs, boolean snapshot) {
+    if (prints.isEmpty() && !snapshot) return null;
+    StringBuilder sb = new StringBuilder(64 + prints.size() * 72);
+    sb.append("{\"type\":\"TRADES\",\"symbol\":\"").append(symbol)
+        .append("\",\"snapshot\":").append(snapshot)
+        .append(",\"aggregateMs\":").append(aggregateMs)
+        .append(",\"trades\":[");
+    for (int i = 0; i < prints.size(); i++) {
+      Print p = prints.get(i);
+      if (i > 0) sb.append(',');
+      sb.append("{\"seq\":").append(p.seq())
+          .append(",\"ts\":").append(p.ts())
+          .append(",\"price\":").append(String.format(Locale.US, "%.4f", p.price()))
+          .append(",\"size\":").append(p.size())
+          .append(",\"side\":\"").append(p.side()).append('"');
+      if (p.synthetic()) sb.append(",\"synthetic\":true");
+      sb.append('}');
+    }
+    return sb.append("]}").toString();
+  }
+
+  /* ------------------- SOURCES ------------------- */
+
+  private void onFill(Fill f) {
+    record(f.symbol(), f.price(), f.qty(), "BUY".equals(f.side()) ? BUY : SELL, f.ts());
+  }
+
+  private void onTick(String symbol, double price, long ts) {
+    ring(symbol).synthetic(ts, price);
+  }
+
+  private Ring ring(String symbol) {
+    return rings.computeIfAbsent(symbol, k -> new Ring(capacity, k.hashCode()));
+  }
+
+  /** Ring of the last {@code capacity} prints; guarded by its own monitor. */
+  private static final class Ring {
+    final long[] ts;
+    final double[] px;
+    final long[] size;
+    final char[] side;
+    final boolean[] synth;
+    long seq;                  // sequence of the newest print
+    double lastTickPx = Double.NaN;
+    long lastTickTs = Long.MIN_VALUE;
+    char lastTickSide = BUY;
+    final SplittableRandom rnd;
+
+    Ring(int capacity, long seed) {
+      ts = new long[capacity];
+      px = new double[capacity];
+      size = new long[capacity];
+      side = new char[capacity];
+      synth = new boolean[capacity];
+      rnd = new SplittableRandom(seed);
+    }
+
+    synchronized void add(long t, double p, long s, char sd, boolean synthetic) {
+      int i = (int) (seq++ % ts.length);
+      ts[i] = t;
+      px[i] = p;
+      size[i] = s;
+      side[i] = sd;
+      synth[i] = synthetic;
+    }
+
+    synchronized void synthetic(long t, double p) {
+      if (t <= lastTickTs) return;   // a replayed price is not a new trade
+      if (!Double.isNaN(lastTickPx) && p != lastTickPx) lastTickSide = p > lastTickPx ? BUY : SELL;
+      lastTickPx = p;
+      lastTickTs = t;
+      add(t, p, 100L * (1 + rnd.nextInt(10)), lastTickSide, true);
+    }
+
+    /** Prints with sequence in (after, seq], clipped to what the ring still holds. */
+    List<Print> copy(long after) {
+      long first = Math.max(after, seq - ts.length) + 1;
+      List<Print> out = new ArrayList<>((int) Math.max(0, seq - first + 1));
+      for (long q = first; q <= seq; q++) {
+        int i = (int) ((q - 1) % ts.length);
+        out.add(new Print(q, ts[i], px[i], size[i], side[i], synth[i]));
+      }
+      return out;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.sts.backend.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sts.backend.domain.User;
+import com.sts.backend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * UserCache — {@link User} by login identifier (username or email,
+ * case-insensitive), in front of the single-query
+ * {@link UserRepository#findByUsernameOrEmail}.
+ *
+ * Bounded and TTL-limited; entries are dropped on any update or delete of
+ * the user (see {@link UserChangeListener}), so role and password changes
+ * are visible on the next lookup, and the TTL bounds staleness for changes
+ * made outside JPA. Misses are not cached. Hit/miss/eviction counts are
+ * published as the "cache.*" meters with cache=users. A TTL of 0 disables
+ * caching.
+ */
+@Component
+public class UserCache {
+
+    private final UserRepository users;
+    private final Cache<String, User> cache;
+
+    public UserCache(
+            UserRepository users,
+            MeterRegistry meters,
+            @Value("${users.cache.ttl-ms:30000}") long ttlMs,
+            @Value("${users.cache.max-size:10000}") long maxSize
+    ) {
+        this.users = users;
+        this.cache = ttlMs <= 0 ? null : Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        if (cache != null) CaffeineCacheMetrics.monitor(meters, cache, "users");
+    }
+
+    public Optional<User> find(String identifier) {
+        if (identifier == null || identifier.isBlank()) return Optional.empty();
+        if (cache == null) return users.findByUsernameOrEmail(identifier);
+        String key = key(identifier);
+        User hit = cache.getIfPresent(key);
+        if (hit != null) return Optional.of(hit);
+        Optional<User> user = users.findByUsernameOrEmail(identifier);
+        user.ifPresent(u -> cache.put(key, u));
+        return user;
+    }
+
+    /** Drops every key the user can be found by. */
+    public void invalidate(User user) {
+        if (cache == null || user == null) return;
+        if (user.getUsername() != null) cache.invalidate(key(user.getUsername()));
+        if (user.getEmail() != null) cache.invalidate(key(user.getEmail()));
+    }
+
+    private static String key(String identifier) {
+        return identifier.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,29 @@
+package com.sts.backend.user;
+
+import com.sts.backend.domain.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * JPA listener on {@link User}: evicts the user from the {@link UserCache}
+ * after every update (role, password, ...) or delete.
+ *
+ * Instantiated by Hibernate through Spring's bean container; the cache is
+ * injected lazily because it depends on the repository, which is not
+ * available while the entity manager factory is being built.
+ */
+public class UserChangeListener {
+
+    private final UserCache cache;
+
+    public UserChangeListener(@Lazy UserCache cache) {
+        this.cache = cache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    void evict(User user) {
+        cache.invalidate(user);
+    }
+}
@@ -1,6 +1,5 @@
 package com.sts.backend.user;
 
-import com.sts.backend.repository.UserRepository;          // ✅ correct import
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
@@ -14,16 +13,15 @@ import org.springframework.stereotype.Service;
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
-  private final UserRepository users;
+  private final UserCache users;
 
-  public UserDetailsServiceImpl(UserRepository users) {
+  public UserDetailsServiceImpl(UserCache users) {
     this.users = users;
   }
 
   @Override
   public UserDetails loadUserByUsername(String username) {
-    return users.findByUsername(username)
-        .or(() -> users.findByEmail(username))
+    return users.find(username)
         .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
   }
 }
@@ -1,34 +1,71 @@
 package com.sts.backend.ws;
 
+import com.sts.backend.ratelimit.RateLimitFilter;
+import com.sts.backend.ratelimit.RateLimiter;
 import com.sts.backend.security.JwtService;
+import com.sts.backend.security.RevocationIndex;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
-import java.net.URI;
-import java.net.URLDecoder;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 /**
- * JwtHandshakeInterceptor — validates JWTs during WebSocket handshakes.
+ * JwtHandshakeInterceptor — authenticates and admits WebSocket handshakes.
  *
- * Supports:
+ * Token from:
  *   • Authorization header ("Bearer <token>")
  *   • Query parameter (?access_token=<token>)
  *
- * On success, stores "username" and "jwt" into the session attributes.
- * Rejects the handshake if the token is missing or invalid.
+ * The token is verified once (signature, expiry, revocation; refresh tokens
+ * are not credentials). On success "username" and "jwt" go into the session
+ * attributes. Without a valid token the connection is anonymous (it sees the
+ * demo account) unless ws.admission.require-auth is set, in which case the
+ * upgrade is refused with 401.
+ *
+ * Admission then runs in order: the per-caller "ws-handshake" rate-limit
+ * policy, then {@link WsAdmission} (global handshake rate, global session
+ * cap, per-user / per-IP cap). A refused upgrade gets 429 or 503 with a
+ * Retry-After; an admitted one holds a {@link WsAdmission.Ticket} under
+ * {@link #TICKET} until the session closes.
  */
 @Component
 public class JwtHandshakeInterceptor implements HandshakeInterceptor {
 
+  /** Session (and request) attribute holding the admission ticket. */
+  public static final String TICKET = "ws.admission";
+
+  private static final Logger log = LoggerFactory.getLogger(JwtHandshakeInterceptor.class);
+
   private final JwtService jwtService;
+  private final RevocationIndex revocations;
+  private final RateLimiter rateLimiter;
+  private final WsAdmission admission;
+  private final boolean requireAuth;
 
-  public JwtHandshakeInterceptor(JwtService jwtService) {
+  public JwtHandshakeInterceptor(JwtService jwtService, RevocationIndex revocations,
+                                 RateLimiter rateLimiter, WsAdmission admission,
+                                 @Value("${ws.admission.require-auth:false}") boolean requireAuth) {
     this.jwtService = jwtService;
+    this.revocations = revocations;
+    this.rateLimiter = rateLimiter;
+    this.admission = admission;
+    this.requireAuth = requireAuth;
   }
 
   @Override
@@ -36,52 +73,62 @@ public class JwtHandshakeInterceptor implements HandshakeInterceptor {
                                  ServerHttpResponse response,
                                  WebSocketHandler wsHandler,
                                  Map<String, Object> attributes) {
+    String ip = remoteIp(request);
+    String token = tokenOf(request);
+    String username = null;
+    String failure = token == null ? "NO_TOKEN" : null;
 
-    String token = null;
+    if (token != null) {
+      try {
+        Claims claims = jwtService.verify(token);
+        String subject = JwtService.subject(claims);
+        if (subject == null || JwtService.isRefresh(claims)) {
+          failure = "INVALID_TOKEN";
+        } else if (revocations.isFamilyRevoked(JwtService.family(claims))
+            || revocations.isCutOff(subject, JwtService.issuedAtMillis(claims))) {
+          failure = "TOKEN_REVOKED";
+        } else {
+          username = subject;
+        }
+      } catch (ExpiredJwtException e) {
+        failure = "TOKEN_EXPIRED";
+      } catch (Exception e) {
+        failure = "INVALID_TOKEN";
+      }
+    }
 
-    // 1️⃣ Authorization header
-    var authHeader = request.getHeaders().getFirst("Authorization");
-    if (authHeader != null && authHeader.startsWith("Bearer ")) {
-      token = authHeader.substring("Bearer ".length()).trim();
+    if (username == null && requireAuth) {
+      log.debug("WS handshake refused from {}: {}", ip, failure);
+      response.setStatusCode(HttpStatus.UNAUTHORIZED);
+      return false;
     }
 
-    // 2️⃣ Fallback — query param ?access_token=...
-    if (token == null) {
-      URI uri = request.getURI();
-      String query = uri.getQuery();
-      if (query != null) {
-        for (String p : query.split("&")) {
-          int eq = p.indexOf('=');
-          if (eq > 0) {
-            String key = URLDecoder.decode(p.substring(0, eq), StandardCharsets.UTF_8);
-            String val = URLDecoder.decode(p.substring(eq + 1), StandardCharsets.UTF_8);
-            if ("access_token".equals(key) && val != null && !val.isBlank()) {
-              token = val.trim();
-              break;
-            }
-          }
-        }
+    RateLimiter.Policy policy = rateLimiter.policy("ws-handshake");
+    if (policy != null) {
+      RateLimiter.Decision d = rateLimiter.acquire(policy, RateLimitFilter.caller(username, ip));
+      if (!d.allowed()) {
+        long seconds = (d.retryAfterMs() + 999) / 1000;
+        HttpHeaders h = response.getHeaders();
+        h.set("RateLimit-Limit", Long.toString(policy.burst()));
+        h.set("RateLimit-Remaining", "0");
+        h.set("RateLimit-Reset", Long.toString(seconds));
+        return refuse(response, HttpStatus.TOO_MANY_REQUESTS, seconds, "RATE_LIMITED", username, ip);
       }
     }
 
-    // Validate if present; otherwise allow in dev for smoother demo
-    try {
-      if (token != null && !token.isBlank()) {
-        String username = jwtService.extractUsername(token);
-        if (username != null && jwtService.isTokenValid(token, username)) {
-          attributes.put("jwt", token);
-          attributes.put("username", username);
-          System.out.println("[WS] Handshake OK - user=" + username);
-          return true;
-        }
-        System.out.println("[WS] Token provided but invalid/expired - continuing without auth in DEV");
-      } else {
-        System.out.println("[WS] No token in handshake - continuing without auth in DEV");
-      }
-    } catch (Exception e) {
-      System.out.println("[WS] Exception validating token: " + e.getMessage());
+    WsAdmission.Decision d = admission.admit(username, ip);
+    if (!d.admitted()) {
+      return refuse(response, d.status(), d.retryAfterSeconds(), d.reason(), username, ip);
     }
-    // DEV fallback: allow connection; Quote stream is public demo anyway
+    attributes.put(TICKET, d.ticket());
+    if (request instanceof ServletServerHttpRequest servlet) {
+      servlet.getServletRequest().setAttribute(TICKET, d.ticket());
+    }
+    if (username != null) {
+      attributes.put("jwt", token);
+      attributes.put("username", username);
+    }
+    log.debug("WS handshake admitted: user={} ip={} ({})", username, ip, username == null ? failure : "authenticated");
     return true;
   }
 
@@ -90,6 +137,37 @@ public class JwtHandshakeInterceptor implements HandshakeInterceptor {
                              ServerHttpResponse response,
                              WebSocketHandler wsHandler,
                              Exception ex) {
-    // no-op
+    // an upgrade that did not happen never reaches afterConnectionClosed: give the slot back here
+    if (!(request instanceof ServletServerHttpRequest servlet)) return;
+    Object ticket = servlet.getServletRequest().getAttribute(TICKET);
+    boolean upgraded = ex == null && (!(response instanceof ServletServerHttpResponse r)
+        || r.getServletResponse().getStatus() == HttpStatus.SWITCHING_PROTOCOLS.value());
+    if (ticket instanceof WsAdmission.Ticket t && !upgraded) t.release();
+  }
+
+  private static boolean refuse(ServerHttpResponse response, HttpStatus status, long retryAfterSeconds,
+                                String reason, String username, String ip) {
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    response.setStatusCode(status);
+    log.info("WS handshake refused: {} user={} ip={} retryAfter={}s", reason, username, ip, retryAfterSeconds);
+    return false;
+  }
+
+  /** Bearer token from the Authorization header, else the access_token query parameter. */
+  private static String tokenOf(ServerHttpRequest request) {
+    String header = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+    if (header != null && header.startsWith("Bearer ")) {
+      String t = header.substring(7).trim();
+      if (!t.isEmpty()) return t;
+    }
+    String raw = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("access_token");
+    if (raw == null) return null;
+    String t = UriUtils.decode(raw, StandardCharsets.UTF_8).trim();
+    return t.isEmpty() ? null : t;
+  }
+
+  private static String remoteIp(ServerHttpRequest request) {
+    InetSocketAddress a = request.getRemoteAddress();
+    return a == null || a.getAddress() == null ? "unknown" : a.getAddress().getHostAddress();
   }
 }
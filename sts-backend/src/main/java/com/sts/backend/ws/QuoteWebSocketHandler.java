@@ -1,5 +1,13 @@
 package com.sts.backend.ws;
 
+import com.sts.backend.baskets.BasketHub;
+import com.sts.backend.common.Accounts;
+import com.sts.backend.depth.DepthBook;
+import com.sts.backend.indicators.Indicator;
+import com.sts.backend.indicators.IndicatorHub;
+import com.sts.backend.quotes.QuoteBook;
+import com.sts.backend.quotes.ReferencePrices;
+import com.sts.backend.tape.TradeTape;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
@@ -30,8 +38,12 @@ public class QuoteWebSocketHandler extends TextWebSocketHandler {
   });
 
   private final Map<WebSocketSession, Set<String>> subs = new ConcurrentHashMap<>();
+  private final Map<WebSocketSession, Set<String>> indicatorSubs = new ConcurrentHashMap<>();
+  private final Map<WebSocketSession, TapeSub> tapeSubs = new ConcurrentHashMap<>();
+  private final Map<String, Long> tapeCursor = new ConcurrentHashMap<>();   // last print sequence pushed, per symbol
+  private final Map<WebSocketSession, Map<String, Long>> depthSubs = new ConcurrentHashMap<>();   // symbol → last seq delivered
+  private final Map<String, Set<WebSocketSession>> byUser = new ConcurrentHashMap<>();
   private final Map<String, Double> last = new ConcurrentHashMap<>();
-  private final Map<String, Double> ref = new ConcurrentHashMap<>();
   private final boolean deterministic = Boolean.parseBoolean(System.getenv().getOrDefault("QUOTES_DETERMINISTIC", "false"));
   private final Random rng = deterministic ? new Random(123456789L) : new Random();
 
@@ -40,17 +52,42 @@ public class QuoteWebSocketHandler extends TextWebSocketHandler {
   private final long alphaPollMs;
   private final RestTemplate http = new RestTemplate();
   private final Map<String, Long> lastFetchAt = new ConcurrentHashMap<>();
+  private final QuoteBook quoteBook;
+  private final ReferencePrices refs;
+  private final IndicatorHub indicators;
+  private final TradeTape tape;
+  private final DepthBook depth;
+  private final BasketHub baskets;
+  private final int maxSymbols;
 
   private static final List<String> DEFAULT = List.of("AAPL","GOOGL","TSLA","MSFT","NVDA","AMZN");
+  private static final int MAX_INDICATORS = 16;
+  private static final int MAX_TAPE_DEPTH = 500;
+
+  private record TapeSub(Set<String> symbols, long aggregateMs) {}
 
   public QuoteWebSocketHandler(
       @Value("${quotes.provider:mock}") String provider,
       @Value("${quotes.alpha.api-key:}") String alphaKey,
-      @Value("${quotes.alpha.poll-interval-ms:15000}") long alphaPollMs
+      @Value("${quotes.alpha.poll-interval-ms:15000}") long alphaPollMs,
+      QuoteBook quoteBook,
+      ReferencePrices refs,
+      IndicatorHub indicators,
+      TradeTape tape,
+      DepthBook depth,
+      BasketHub baskets,
+      @Value("${ws.max-symbols:64}") int maxSymbols
   ) {
     this.provider = provider;
     this.alphaKey = alphaKey;
     this.alphaPollMs = alphaPollMs;
+    this.quoteBook = quoteBook;
+    this.refs = refs;
+    this.indicators = indicators;
+    this.tape = tape;
+    this.depth = depth;
+    this.baskets = baskets;
+    this.maxSymbols = Math.max(1, maxSymbols);
     exec.scheduleAtFixedRate(this::tick, 1000, 1000, TimeUnit.MILLISECONDS);
   }
 
@@ -58,54 +95,302 @@ public class QuoteWebSocketHandler extends TextWebSocketHandler {
   public void afterConnectionEstablished(WebSocketSession session) {
     System.out.println("[WS] ✅ Connection established: " + session.getId());
     subs.put(session, new CopyOnWriteArraySet<>(DEFAULT));
+    byUser.computeIfAbsent(userOf(session), k -> ConcurrentHashMap.newKeySet()).add(session);
   }
 
   @Override
   public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-    subs.remove(session);
+    Set<String> syms = subs.remove(session);
+    tapeSubs.remove(session);
+    Map<String, Long> books = depthSubs.remove(session);
+    if (books != null) books.keySet().forEach(depth::release);
+    Set<String> names = indicatorSubs.remove(session);
+    if (syms != null && names != null) {
+      for (String sym : syms) for (String n : names) if (!isBasket(sym)) indicators.release(sym, n);
+    }
+    Set<WebSocketSession> mine = byUser.get(userOf(session));
+    if (mine != null) mine.remove(session);
+  }
+
+  /** Push a frame to every open session of a user (unauthenticated sessions count as the demo account). */
+  public void sendToUser(String username, String json) {
+    Set<WebSocketSession> mine = byUser.get(username);
+    if (mine == null) return;
+    for (WebSocketSession s : mine) {
+      if (s.isOpen()) send(s, json);
+    }
+  }
+
+  private static boolean isBasket(String sym) {
+    return sym.startsWith("@");
+  }
+
+  private static String userOf(WebSocketSession session) {
+    Object u = session.getAttributes().get("username");
+    return u == null ? Accounts.DEMO : u.toString();
+  }
+
+  // sessions are written from the tick thread and from message handlers
+  private static void send(WebSocketSession s, String json) {
+    try {
+      synchronized (s) {
+        s.sendMessage(new TextMessage(json));
+      }
+    } catch (IOException ignored) {}
   }
 
   @Override
   protected void handleTextMessage(WebSocketSession session, TextMessage message) {
     String p = message.getPayload() == null ? "" : message.getPayload().trim();
     if (p.isEmpty()) return;
-    if (p.contains("\"type\"") && p.toLowerCase().contains("sub") && p.contains("symbols")) {
-      int start = p.indexOf('[');
-      int end = p.indexOf(']');
-      if (start >= 0 && end > start) {
-        String arr = p.substring(start + 1, end);
-        Set<String> syms = Arrays.stream(arr.split(","))
-            .map(s -> s.replaceAll("[\\\"\\s]", "").toUpperCase())
-            .filter(s -> !s.isBlank())
-            .collect(Collectors.toCollection(CopyOnWriteArraySet::new));
+    if (p.contains("\"type\"") && p.contains("resync")) {
+      resyncDepth(session, arrayField(p, "symbols"));
+      return;
+    }
+    if (p.contains("\"type\"") && p.toLowerCase().contains("sub")
+        && (p.contains("symbols") || p.contains("indicators") || p.contains("tape") || p.contains("depth"))) {
+      List<String> symList = symbolsField(p, "symbols", true);
+      List<String> indList = arrayField(p, "indicators");
+      Set<String> oldSyms = subs.getOrDefault(session, Set.of());
+      Set<String> oldInds = indicatorSubs.getOrDefault(session, Set.of());
+
+      Set<String> syms = oldSyms;
+      if (symList != null) {
+        syms = new CopyOnWriteArraySet<>(symList);
         if (syms.isEmpty()) syms.addAll(DEFAULT);
-        subs.put(session, syms);
-        System.out.println("[WS] SUB " + session.getId() + " → " + syms);
-        snapshot(session, syms);
       }
+      Set<String> inds = oldInds;
+      if (indList != null) {
+        inds = indList.stream()
+            .map(Indicator::canonical)
+            .filter(Objects::nonNull)
+            .limit(MAX_INDICATORS)
+            .collect(Collectors.toCollection(CopyOnWriteArraySet::new));
+      }
+
+      // acquire before release so shared instances survive a resubscribe
+      for (String sym : syms) for (String n : inds) if (!isBasket(sym)) indicators.acquire(sym, n);
+      for (String sym : oldSyms) for (String n : oldInds) if (!isBasket(sym)) indicators.release(sym, n);
+      indicatorSubs.put(session, inds);
+      subs.put(session, syms);
+      System.out.println("[WS] SUB " + session.getId() + " → " + syms + (inds.isEmpty() ? "" : " " + inds));
+      if (symList != null) snapshot(session, syms);
+      List<String> tapeList = symbolsField(p, "tape", false);
+      if (tapeList != null) subscribeTape(session, tapeList, p);
+      List<String> depthList = symbolsField(p, "depth", false);
+      if (depthList != null) subscribeDepth(session, depthList);
+    }
+  }
+
+  /**
+   * {@code "depth":["AAPL"]}: one snapshot per symbol now, then DEPTH diffs
+   * whose prevSeq matches the last seq the session got. A session that
+   * missed a diff gets a fresh snapshot instead, as does an explicit
+   * {@code {"type":"resync","symbols":[...]}}.
+   */
+  private void subscribeDepth(WebSocketSession session, List<String> symbols) {
+    Map<String, Long> next = new ConcurrentHashMap<>();
+    for (String sym : symbols) {
+      depth.acquire(sym);
+      next.put(sym, -1L);
+    }
+    Map<String, Long> old = depthSubs.put(session, next);
+    if (old != null) old.keySet().forEach(depth::release);
+    if (next.isEmpty()) depthSubs.remove(session);
+    resyncDepth(session, symbols);
+  }
+
+  private void resyncDepth(WebSocketSession session, List<String> symbols) {
+    Map<String, Long> seen = depthSubs.get(session);
+    if (seen == null) return;
+    for (String sym : symbols == null ? List.copyOf(seen.keySet()) : symbols) {
+      if (!seen.containsKey(sym)) continue;
+      synchronized (seen) {
+        DepthBook.Step snap = depth.snapshot(sym);
+        if (snap == null) continue;
+        seen.put(sym, snap.seq());
+        send(session, snap.frame());
+      }
+    }
+  }
+
+  /**
+   * {@code "tape":["AAPL"],"tapeAggregateMs":250,"tapeDepth":50}: the last
+   * tapeDepth prints per symbol now, then every new print once per tick.
+   */
+  private void subscribeTape(WebSocketSession session, List<String> symbols, String json) {
+    if (symbols.isEmpty()) {
+      tapeSubs.remove(session);
+      return;
+    }
+    long agg = Math.max(0, numberField(json, "tapeAggregateMs", 0));
+    int depth = (int) Math.min(MAX_TAPE_DEPTH, Math.max(0, numberField(json, "tapeDepth", 50)));
+    Set<String> syms = new CopyOnWriteArraySet<>(symbols);
+    for (String sym : syms) tapeCursor.putIfAbsent(sym, tape.lastSeq(sym));
+    tapeSubs.put(session, new TapeSub(syms, agg));
+    for (String sym : syms) send(session, TradeTape.frame(sym, tape.recent(sym, depth, agg), agg, true));
+  }
+
+  private static long numberField(String json, String key, long dflt) {
+    int k = json.indexOf("\"" + key + "\"");
+    if (k < 0) return dflt;
+    int i = json.indexOf(':', k);
+    if (i < 0) return dflt;
+    int j = ++i;
+    while (j < json.length() && (Character.isDigit(json.charAt(j)) || json.charAt(j) == ' ' || json.charAt(j) == '-')) j++;
+    try {
+      return Long.parseLong(json.substring(i, j).trim());
+    } catch (NumberFormatException e) {
+      return dflt;
     }
   }
 
+  /**
+   * {@link #arrayField} as a symbol list: duplicates and symbols outside the
+   * quote universe dropped (basket names kept where {@code baskets}), at
+   * most ws.max-symbols of them.
+   */
+  private List<String> symbolsField(String json, String key, boolean baskets) {
+    List<String> raw = arrayField(json, key);
+    if (raw == null) return null;
+    Set<String> out = new LinkedHashSet<>();
+    for (String sym : raw) {
+      if (out.size() == maxSymbols) break;
+      if (baskets && isBasket(sym) || quoteBook.isKnown(sym)) out.add(sym);
+    }
+    return List.copyOf(out);
+  }
+
+  /** Upper-cased string elements of {@code "key":[...]}, or {@code null} if the key is absent. */
+  private static List<String> arrayField(String json, String key) {
+    int k = json.indexOf("\"" + key + "\"");
+    if (k < 0) return null;
+    int start = json.indexOf('[', k);
+    int end = start < 0 ? -1 : json.indexOf(']', start);
+    if (end < 0) return null;
+    return Arrays.stream(json.substring(start + 1, end).split(","))
+        .map(s -> s.replaceAll("[\\\"\\s]", "").toUpperCase())
+        .filter(s -> !s.isBlank())
+        .toList();
+  }
+
+  /**
+   * One pass per tick: every symbol that a session subscribes to, or that the
+   * QuoteBook tracks for server-side consumers, is priced exactly once and
+   * published; sessions then receive the shared frames. Basket symbols
+   * ({@code @NAME}) are not priced here: their constituents are tracked and
+   * the basket frame is read from {@link BasketHub} once they have ticked.
+   */
   private void tick() {
-    if (subs.isEmpty()) return;
+    Set<String> symbols = new LinkedHashSet<>(quoteBook.tracked());
+    for (Set<String> s : subs.values()) {
+      for (String sym : s) if (!isBasket(sym)) symbols.add(sym);
+    }
+    for (TapeSub t : tapeSubs.values()) symbols.addAll(t.symbols());
+    for (Map<String, Long> d : depthSubs.values()) symbols.addAll(d.keySet());
+    if (symbols.isEmpty()) return;
+
     long now = System.currentTimeMillis();
+    Map<String, String> frames = new HashMap<>();
+    for (String sym : symbols) {
+      double price = "alpha".equalsIgnoreCase(provider) ? fetchAlpha(sym, now) : evolve(sym);
+      quoteBook.update(sym, price, now);
+      frames.put(sym, quoteJson(sym, price, now));
+    }
+
     for (Map.Entry<WebSocketSession, Set<String>> e : subs.entrySet()) {
       WebSocketSession s = e.getKey();
       if (!s.isOpen()) continue;
+      Set<String> names = indicatorSubs.getOrDefault(s, Set.of());
       for (String sym : e.getValue()) {
-        try {
-          double price = "alpha".equalsIgnoreCase(provider) ? fetchAlpha(sym, now) : evolve(sym);
-          double base = ref.computeIfAbsent(sym, k -> price);
-          double changePct = (price - base) / base * 100.0;
-          String json = "{\"type\":\"QUOTE\",\"symbol\":\"" + sym + "\",\"price\":" +
-              String.format(java.util.Locale.US, "%.2f", price) + ",\"changePct\":" +
-              String.format(java.util.Locale.US, "%.2f", changePct) + ",\"ts\":" + now + "}";
-          s.sendMessage(new TextMessage(json));
-        } catch (IOException ignored) {}
+        if (isBasket(sym)) {
+          String frame = baskets.frame(userOf(s), sym);
+          if (frame != null) send(s, frame);
+          continue;
+        }
+        String frame = frames.get(sym);
+        if (frame == null) continue;   // subscribed after this tick was priced
+        send(s, frame);
+        for (String n : names) {
+          String ind = indicators.frame(sym, n);
+          if (ind != null) send(s, ind);
+        }
+      }
+    }
+    pushTape();
+    pushDepth(now);
+    quoteBook.endOfTick(now);
+  }
+
+  /** Each subscribed book steps once per tick; the resulting diff frame is shared. */
+  private void pushDepth(long now) {
+    if (depthSubs.isEmpty()) return;
+    Map<String, DepthBook.Step> steps = new HashMap<>();
+    for (Map.Entry<WebSocketSession, Map<String, Long>> e : depthSubs.entrySet()) {
+      WebSocketSession s = e.getKey();
+      Map<String, Long> seen = e.getValue();
+      for (String sym : seen.keySet()) {
+        DepthBook.Step st = steps.computeIfAbsent(sym, k -> depth.step(k, now));
+        if (!s.isOpen()) continue;
+        synchronized (seen) {
+          long have = seen.getOrDefault(sym, -1L);
+          if (st.frame() != null && have == st.seq() - 1) {
+            seen.put(sym, st.seq());
+            send(s, st.frame());
+          } else if (have != st.seq()) {
+            DepthBook.Step snap = depth.snapshot(sym);   // gap: the session missed a diff
+            if (snap == null) continue;
+            seen.put(sym, snap.seq());
+            send(s, snap.frame());
+          }
+        }
       }
     }
   }
 
+  /**
+   * New prints since the last tick, read once per symbol and rendered once
+   * per (symbol, aggregation window), then shared by all tape subscribers.
+   */
+  private void pushTape() {
+    if (tapeSubs.isEmpty()) {
+      tapeCursor.clear();
+      return;
+    }
+    Map<String, List<TradeTape.Print>> fresh = new HashMap<>();
+    for (TapeSub t : tapeSubs.values()) {
+      for (String sym : t.symbols()) {
+        fresh.computeIfAbsent(sym, k -> tape.since(k, tapeCursor.getOrDefault(k, 0L), 0));
+      }
+    }
+    tapeCursor.keySet().retainAll(fresh.keySet());
+    for (Map.Entry<String, List<TradeTape.Print>> e : fresh.entrySet()) {
+      List<TradeTape.Print> ps = e.getValue();
+      if (!ps.isEmpty()) tapeCursor.put(e.getKey(), ps.get(ps.size() - 1).seq());
+    }
+
+    Map<String, String> frames = new HashMap<>();
+    for (Map.Entry<WebSocketSession, TapeSub> e : tapeSubs.entrySet()) {
+      WebSocketSession s = e.getKey();
+      if (!s.isOpen()) continue;
+      long agg = e.getValue().aggregateMs();
+      for (String sym : e.getValue().symbols()) {
+        String frame = frames.computeIfAbsent(sym + '|' + agg, k -> {
+          List<TradeTape.Print> ps = fresh.getOrDefault(sym, List.of());
+          return TradeTape.frame(sym, agg > 0 ? TradeTape.aggregate(ps, agg) : ps, agg, false);
+        });
+        if (frame != null) send(s, frame);
+      }
+    }
+  }
+
+  private String quoteJson(String sym, double price, long now) {
+    double changePct = refs.changePct(sym, price, ReferencePrices.Basis.PREV_CLOSE);
+    return "{\"type\":\"QUOTE\",\"symbol\":\"" + sym + "\",\"price\":" +
+        String.format(java.util.Locale.US, "%.2f", price) + ",\"changePct\":" +
+        String.format(java.util.Locale.US, "%.2f", changePct) + ",\"ts\":" + now + "}";
+  }
+
   private double evolve(String sym) {
     double lastPx = last.computeIfAbsent(sym, this::basePrice);
     double drift = (rng.nextDouble() - 0.5) * 0.024;
@@ -123,15 +408,19 @@ public class QuoteWebSocketHandler extends TextWebSocketHandler {
   private void snapshot(WebSocketSession s, Collection<String> symbols) {
     long now = System.currentTimeMillis();
     for (String sym : symbols) {
-      try {
-        double price = last.computeIfAbsent(sym, k -> "alpha".equalsIgnoreCase(provider) ? baseAlpha(sym) : basePrice(sym));
-        double base = ref.computeIfAbsent(sym, k -> price);
-        double changePct = (price - base) / base * 100.0;
-        String json = "{\"type\":\"QUOTE\",\"symbol\":\"" + sym + "\",\"price\":" +
-            String.format(java.util.Locale.US, "%.2f", price) + ",\"changePct\":" +
-            String.format(java.util.Locale.US, "%.2f", changePct) + ",\"ts\":" + now + "}";
-        s.sendMessage(new TextMessage(json));
-      } catch (IOException ignored) {}
+      if (isBasket(sym)) {
+        String frame = baskets.frame(userOf(s), sym);
+        if (frame != null) send(s, frame);
+        continue;
+      }
+      QuoteBook.Quote q = quoteBook.get(sym);
+      if (q != null) {                 // already live: replay, don't feed the same price again
+        send(s, quoteJson(sym, q.price(), q.ts()));
+        continue;
+      }
+      double price = last.computeIfAbsent(sym, k -> "alpha".equalsIgnoreCase(provider) ? baseAlpha(sym) : basePrice(sym));
+      quoteBook.update(sym, price, now);
+      send(s, quoteJson(sym, price, now));
     }
   }
 
@@ -159,6 +448,8 @@ public class QuoteWebSocketHandler extends TextWebSocketHandler {
           double px = Double.parseDouble(ps);
           last.put(sym, px);
           lastFetchAt.put(sym, now);
+          String pc = Objects.toString(m.get("08. previous close"), null);
+          if (pc != null) refs.seedPrevClose(sym, Double.parseDouble(pc));
           return px;
         }
       }
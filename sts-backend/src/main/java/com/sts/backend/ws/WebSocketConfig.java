@@ -1,12 +1,18 @@
 package com.sts.backend.ws;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 
 /**
  * WebSocketConfig — registers and secures your WS endpoints.
+ *
+ * The handler is wrapped so that a closing session gives back the
+ * admission slot its handshake took (see {@link WsAdmission}).
  */
 @Configuration
 @EnableWebSocket
@@ -24,7 +30,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
     registry
-        .addHandler(quoteWebSocketHandler, "/ws/quotes")
+        .addHandler(releasingAdmission(quoteWebSocketHandler), "/ws/quotes")
         .addInterceptors(jwtHandshakeInterceptor)
         .setAllowedOriginPatterns(
             "http://localhost:5173",
@@ -34,4 +40,17 @@ public class WebSocketConfig implements WebSocketConfigurer {
             "https://eazy-byts-trade-app.vercel.app"
         );
   }
+
+  private static WebSocketHandlerDecorator releasingAdmission(QuoteWebSocketHandler handler) {
+    return new WebSocketHandlerDecorator(handler) {
+      @Override
+      public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        try {
+          super.afterConnectionClosed(session, status);
+        } finally {
+          if (session.getAttributes().get(JwtHandshakeInterceptor.TICKET) instanceof WsAdmission.Ticket t) t.release();
+        }
+      }
+    };
+  }
 }
@@ -0,0 +1,135 @@
+package com.sts.backend.ws;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WsAdmission — decides at the handshake whether a WebSocket may open.
+ *
+ * Three limits, cheapest first:
+ *   • a global handshake rate (token bucket), so a reconnect storm after a
+ *     deploy is spread out instead of arriving in one second;
+ *   • a global cap on open (or admitted, still upgrading) sessions;
+ *   • a cap per caller — the user when authenticated, the IP otherwise.
+ *
+ * A granted handshake holds a {@link Ticket} until its session closes (or
+ * the upgrade fails). Rejections carry a Retry-After with random jitter so
+ * the clients that were turned away together do not come back together.
+ */
+@Component
+public class WsAdmission {
+
+  /** Slot held by one admitted session; {@link #release} is idempotent. */
+  public final class Ticket {
+    private final String caller;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Ticket(String caller) {
+      this.caller = caller;
+    }
+
+    public void release() {
+      if (!released.compareAndSet(false, true)) return;
+      open.decrementAndGet();
+      perCaller.computeIfPresent(caller, (k, n) -> n <= 1 ? null : n - 1);
+    }
+  }
+
+  /** {@code ticket} when admitted; otherwise the status and Retry-After seconds to answer with. */
+  public record Decision(Ticket ticket, HttpStatus status, long retryAfterSeconds, String reason) {
+    public boolean admitted() {
+      return ticket != null;
+    }
+  }
+
+  private final int maxSessions;
+  private final int maxPerUser;
+  private final int maxPerIp;
+  private final double handshakesPerSecond;
+  private final double handshakeBurst;
+  private final long retryAfterSeconds;
+  private final long jitterSeconds;
+
+  private final AtomicInteger open = new AtomicInteger();
+  private final Map<String, Integer> perCaller = new ConcurrentHashMap<>();
+  private double tokens;
+  private long lastRefill = System.nanoTime();
+
+  public WsAdmission(
+      MeterRegistry meters,
+      @Value("${ws.admission.max-sessions:5000}") int maxSessions,
+      @Value("${ws.admission.max-per-user:8}") int maxPerUser,
+      @Value("${ws.admission.max-per-ip:32}") int maxPerIp,
+      @Value("${ws.admission.handshakes-per-second:100}") double handshakesPerSecond,
+      @Value("${ws.admission.handshake-burst:200}") double handshakeBurst,
+      @Value("${ws.admission.retry-after-seconds:2}") long retryAfterSeconds,
+      @Value("${ws.admission.retry-jitter-seconds:8}") long jitterSeconds
+  ) {
+    this.maxSessions = maxSessions;
+    this.maxPerUser = maxPerUser;
+    this.maxPerIp = maxPerIp;
+    this.handshakesPerSecond = handshakesPerSecond;
+    this.handshakeBurst = Math.max(1, handshakeBurst);
+    this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    this.jitterSeconds = Math.max(0, jitterSeconds);
+    this.tokens = this.handshakeBurst;
+    Gauge.builder("ws.sessions.admitted", open, AtomicInteger::get)
+        .description("WebSocket sessions holding an admission slot")
+        .register(meters);
+  }
+
+  /**
+   * Admits one handshake for the user ({@code null} when unauthenticated,
+   * then counted against the IP).
+   */
+  public Decision admit(String username, String ip) {
+    if (!takeHandshakeToken()) return reject(HttpStatus.SERVICE_UNAVAILABLE, "HANDSHAKE_RATE");
+
+    if (open.incrementAndGet() > maxSessions && maxSessions > 0) {
+      open.decrementAndGet();
+      return reject(HttpStatus.SERVICE_UNAVAILABLE, "SERVER_FULL");
+    }
+    String caller = username != null ? "u:" + username : "ip:" + ip;
+    int cap = username != null ? maxPerUser : maxPerIp;
+    boolean[] granted = {false};
+    perCaller.compute(caller, (k, n) -> {
+      int held = n == null ? 0 : n;
+      if (cap > 0 && held >= cap) return n;
+      granted[0] = true;
+      return held + 1;
+    });
+    if (!granted[0]) {
+      open.decrementAndGet();
+      return reject(HttpStatus.TOO_MANY_REQUESTS, "TOO_MANY_SESSIONS");
+    }
+    return new Decision(new Ticket(caller), null, 0, null);
+  }
+
+  public int openSessions() {
+    return open.get();
+  }
+
+  private synchronized boolean takeHandshakeToken() {
+    if (handshakesPerSecond <= 0) return true;
+    long now = System.nanoTime();
+    tokens = Math.min(handshakeBurst, tokens + (now - lastRefill) / 1e9 * handshakesPerSecond);
+    lastRefill = now;
+    if (tokens < 1.0) return false;
+    tokens -= 1.0;
+    return true;
+  }
+
+  private Decision reject(HttpStatus status, String reason) {
+    long jitter = jitterSeconds == 0 ? 0 : ThreadLocalRandom.current().nextLong(jitterSeconds + 1);
+    return new Decision(null, status, retryAfterSeconds + jitter, reason);
+  }
+}
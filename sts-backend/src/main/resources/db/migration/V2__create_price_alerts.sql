@@ -0,0 +1,15 @@
+-- V2__create_price_alerts.sql
+CREATE TABLE price_alerts (
+  id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  username VARCHAR(64) NOT NULL,
+  symbol VARCHAR(16) NOT NULL,
+  kind VARCHAR(16) NOT NULL,
+  threshold DOUBLE PRECISION NOT NULL,
+  status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE',
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  fired_at TIMESTAMP WITH TIME ZONE,
+  fired_price DOUBLE PRECISION
+);
+
+CREATE INDEX idx_price_alerts_status ON price_alerts (status);
+CREATE INDEX idx_price_alerts_username ON price_alerts (username);
@@ -0,0 +1,6 @@
+-- V3__users_case_insensitive_identifiers.sql
+-- Usernames and emails are unique regardless of case; the expression
+-- indexes also serve UserRepository.findByIdentifier (one round trip for
+-- username-or-email).
+CREATE UNIQUE INDEX ux_users_username_lower ON users (LOWER(username));
+CREATE UNIQUE INDEX ux_users_email_lower ON users (LOWER(email));